@@ -1,5 +1,6 @@
 package com.plattysoft.leonids.examples;
 
+import androidx.particles.ParticlePool;
 import androidx.particles.ParticleSystem;
 
 import android.os.Bundle;
@@ -24,6 +25,8 @@ public class FireworksExampleActivity extends Activity implements OnClickListene
 		ps.setSpeedRange(0.1f, 0.25f);
 		ps.setRotationSpeedRange(90, 180);
 		ps.setFadeOut(200, new AccelerateInterpolator());
+		ps.setCompositorLayer(0);
+		ps.setParticlePool(ParticlePool.getShared());
 		ps.oneShot(arg0, 70);
 
 		ParticleSystem ps2 = new ParticleSystem(this, 100, R.drawable.star_white, 800);
@@ -31,6 +34,8 @@ public class FireworksExampleActivity extends Activity implements OnClickListene
 		ps2.setSpeedRange(0.1f, 0.25f);
 		ps.setRotationSpeedRange(90, 180);
 		ps2.setFadeOut(200, new AccelerateInterpolator());
+		ps2.setCompositorLayer(1);
+		ps2.setParticlePool(ParticlePool.getShared());
 		ps2.oneShot(arg0, 70);
 	}
 
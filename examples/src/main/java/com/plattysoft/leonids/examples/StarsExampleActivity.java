@@ -26,6 +26,7 @@ public class StarsExampleActivity extends Activity implements OnClickListener {
 		.setRotationSpeed(120)
 		.setFadeOut(2000)
 		.addModifier(new ScaleModifier(0f, 1.5f, 0, 1500))
+		.setSurfaceRendering(true)
 		.oneShot(arg0, 10);
 	}
 }
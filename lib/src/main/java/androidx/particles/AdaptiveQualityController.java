@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import androidx.annotation.IntRange;
+
+/**
+ * Adapts the quality of one or more {@link ParticleSystem}s to the time they take to update and
+ * draw their particles.
+ * <p>
+ * The measured update and draw time is compared against a frame budget, the time per frame the
+ * particle systems may spend. When it stays above the budget, the quality level is lowered, which
+ * reduces the emission rate, the effective maximum number of particles and the tick rate. When it
+ * stays well below the budget, the quality level is raised again. Lowering reacts faster than
+ * raising, so that the quality does not oscillate.
+ *
+ * @see ParticleSystem#setQualityController(AdaptiveQualityController)
+ */
+public class AdaptiveQualityController {
+
+	/**
+	 * The highest quality level, at which the particle systems run unchanged.
+	 */
+	public static final int MAX_QUALITY_LEVEL = 4;
+
+	// Per quality level, from the lowest to the highest
+	private static final float[] QUALITY_SCALES = {0.25f, 0.35f, 0.5f, 0.75f, 1f};
+	private static final int[] TICK_DIVISORS = {3, 2, 2, 1, 1};
+
+	private static final long EVALUATION_WINDOW_NANOS = 250_000_000L;
+	// The cost has to stay under this fraction of the budget before the quality is raised
+	private static final float RAISE_THRESHOLD = 0.6f;
+	private static final int WINDOWS_BEFORE_LOWERING = 2;
+	private static final int WINDOWS_BEFORE_RAISING = 8;
+
+	private final long mFrameBudgetNanos;
+	private final long mFrameIntervalNanos;
+
+	private volatile int mQualityLevel = MAX_QUALITY_LEVEL;
+
+	private long mWindowStart = -1;
+	private long mWindowCost;
+	private int mWindowsOverBudget;
+	private int mWindowsUnderBudget;
+
+	/**
+	 * Creates a controller for a 60 Hz display.
+	 *
+	 * @param frameBudgetMillis The time per frame the particle systems may spend updating and drawing.
+	 */
+	public AdaptiveQualityController(float frameBudgetMillis) {
+		this(frameBudgetMillis, 1000f / 60);
+	}
+
+	/**
+	 * Creates a controller.
+	 *
+	 * @param frameBudgetMillis The time per frame the particle systems may spend updating and drawing.
+	 * @param frameIntervalMillis The time between two frames of the display.
+	 */
+	public AdaptiveQualityController(float frameBudgetMillis, float frameIntervalMillis) {
+		mFrameBudgetNanos = (long) (frameBudgetMillis * 1_000_000);
+		mFrameIntervalNanos = (long) (frameIntervalMillis * 1_000_000);
+	}
+
+	/**
+	 * Returns the current quality level, between {@code 0} (lowest) and {@link #MAX_QUALITY_LEVEL}.
+	 */
+	@IntRange(from=0, to=MAX_QUALITY_LEVEL)
+	public int getQualityLevel() {
+		return mQualityLevel;
+	}
+
+	/**
+	 * Returns the factor applied to the emission rate and the maximum number of particles at the
+	 * current quality level.
+	 */
+	public float getQualityScale() {
+		return QUALITY_SCALES[mQualityLevel];
+	}
+
+	/**
+	 * Returns how many ticks make one update at the current quality level.
+	 */
+	int getTickDivisor() {
+		return TICK_DIVISORS[mQualityLevel];
+	}
+
+	void addUpdateTime(long nanos) {
+		addCost(nanos);
+	}
+
+	void addDrawTime(long nanos) {
+		addCost(nanos);
+	}
+
+	private void addCost(long nanos) {
+		addCost(nanos, System.nanoTime());
+	}
+
+	// Adds a cost measured at the given time, evaluating the quality at the end of each window
+	synchronized void addCost(long nanos, long now) {
+		if (mWindowStart == -1) {
+			mWindowStart = now;
+		}
+		mWindowCost += nanos;
+		long elapsed = now - mWindowStart;
+		if (elapsed >= EVALUATION_WINDOW_NANOS) {
+			evaluate(mWindowCost * mFrameIntervalNanos / elapsed);
+			mWindowStart = now;
+			mWindowCost = 0;
+		}
+	}
+
+	private void evaluate(long frameCostNanos) {
+		if (frameCostNanos > mFrameBudgetNanos) {
+			mWindowsUnderBudget = 0;
+			if (++mWindowsOverBudget >= WINDOWS_BEFORE_LOWERING && mQualityLevel > 0) {
+				mQualityLevel--;
+				mWindowsOverBudget = 0;
+			}
+		}
+		else if (frameCostNanos < mFrameBudgetNanos * RAISE_THRESHOLD) {
+			mWindowsOverBudget = 0;
+			if (++mWindowsUnderBudget >= WINDOWS_BEFORE_RAISING && mQualityLevel < MAX_QUALITY_LEVEL) {
+				mQualityLevel++;
+				mWindowsUnderBudget = 0;
+			}
+		}
+		else {
+			mWindowsOverBudget = 0;
+			mWindowsUnderBudget = 0;
+		}
+	}
+}
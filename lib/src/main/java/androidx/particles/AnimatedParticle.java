@@ -44,6 +44,11 @@ public class AnimatedParticle extends Particle {
 		}
 	}
 
+	@NonNull
+	AnimationDrawable getAnimationDrawable() {
+		return mAnimationDrawable;
+	}
+
 	@Override
 	public boolean update(long milliseconds) {
 		boolean active = super.update(milliseconds);
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.particles.initializers.ParticleInitializer;
+import androidx.particles.modifiers.ParticleModifier;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A set of particle trajectories computed once from the initializers and modifiers of a
+ * {@link ParticleSystem}, and played back by particle systems instead of being simulated again.
+ * <p>
+ * The position relative to the emitter, rotation, scale and alpha of each trajectory are sampled
+ * at regular keyframes into packed arrays. Playing a particle back only looks up the two
+ * keyframes around its age and interpolates between them. Trajectories can be mirrored and
+ * rotated around the emitter when played, so that a few of them give varied effects.
+ * <p>
+ * Only initializers and modifiers that depend on the particle alone are baked: modifiers
+ * reacting to other particles, views or fields are left out of the trajectories.
+ *
+ * @see ParticleSystem#bake(int, int)
+ * @see ParticleSystem#setBakedEffect(BakedEffect, boolean, int)
+ */
+public final class BakedEffect {
+
+	private final int mTrajectoryCount;
+	private final int mKeyframeCount;
+	private final int mKeyframeInterval;
+	// Keyframe k of trajectory t is at index t * mKeyframeCount + k
+	private final float[] mX;
+	private final float[] mY;
+	private final float[] mRotation;
+	private final float[] mScale;
+	private final byte[] mAlpha;
+	private final int[] mColors;
+
+	@WorkerThread
+	BakedEffect(@NonNull Bitmap sprite, int trajectoryCount, int keyframeInterval, long timeToLive,
+				int timestep, @NonNull List<? extends ParticleInitializer> initializers,
+				@NonNull List<ParticleModifier> modifiers, @NonNull Random random) {
+		mTrajectoryCount = trajectoryCount;
+		mKeyframeInterval = keyframeInterval;
+		mKeyframeCount = (int) ((timeToLive + keyframeInterval - 1) / keyframeInterval) + 1;
+		int size = trajectoryCount * mKeyframeCount;
+		mX = new float[size];
+		mY = new float[size];
+		mRotation = new float[size];
+		mScale = new float[size];
+		mAlpha = new byte[size];
+		mColors = new int[trajectoryCount];
+
+		Particle particle = new Particle(sprite);
+		// Integrated like the particles of the particle system
+		particle.setTimestep(timestep);
+		for (int t = 0; t < trajectoryCount; t++) {
+			particle.init();
+			for (int i = 0; i < initializers.size(); i++) {
+				initializers.get(i).initParticle(particle, random);
+			}
+			particle.configure(timeToLive, 0, 0);
+			particle.activate(0, modifiers);
+			mColors[t] = particle.mColor;
+			for (int k = 0; k < mKeyframeCount; k++) {
+				particle.update(Math.min((long) k * keyframeInterval, timeToLive));
+				int index = t * mKeyframeCount + k;
+				mX[index] = particle.getCenterX();
+				mY[index] = particle.getCenterY();
+				mRotation[index] = particle.getRotation();
+				mScale[index] = particle.mScale;
+				mAlpha[index] = (byte) particle.mAlpha;
+			}
+		}
+	}
+
+	public int getTrajectoryCount() {
+		return mTrajectoryCount;
+	}
+
+	/**
+	 * Returns the time between two keyframes in milliseconds.
+	 */
+	public int getKeyframeInterval() {
+		return mKeyframeInterval;
+	}
+
+	/**
+	 * Returns the memory used by the keyframes, in bytes.
+	 */
+	public int getByteCount() {
+		return mX.length * (4 * 4 + 1) + mColors.length * 4;
+	}
+
+	@ColorInt
+	int getColor(int trajectory) {
+		return mColors[trajectory];
+	}
+
+	/**
+	 * Moves a particle to its state along a trajectory at the given age.
+	 *
+	 * @param mirror Whether to mirror the trajectory horizontally.
+	 * @param angle The rotation of the trajectory around the emitter in degrees.
+	 * @param cos The cosine of the angle.
+	 * @param sin The sine of the angle.
+	 */
+	void sample(@NonNull Particle particle, int trajectory, long age, boolean mirror, float angle,
+				float cos, float sin) {
+		float position = (float) age / mKeyframeInterval;
+		int keyframe = Math.min((int) position, mKeyframeCount - 2);
+		float fraction = Math.min(position - keyframe, 1f);
+		int i = trajectory * mKeyframeCount + keyframe;
+		float x = mX[i] + (mX[i + 1] - mX[i]) * fraction;
+		float y = mY[i] + (mY[i + 1] - mY[i]) * fraction;
+		float rotation = mRotation[i] + (mRotation[i + 1] - mRotation[i]) * fraction;
+		float scale = mScale[i] + (mScale[i + 1] - mScale[i]) * fraction;
+		int alpha = (mAlpha[i] & 0xFF) + Math.round(((mAlpha[i + 1] & 0xFF) - (mAlpha[i] & 0xFF)) * fraction);
+		if (mirror) {
+			x = -x;
+			rotation = -rotation;
+		}
+		particle.setBakedState(x * cos - y * sin, x * sin + y * cos, rotation + angle, scale, alpha);
+	}
+}
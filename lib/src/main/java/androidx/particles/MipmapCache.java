@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.WeakHashMap;
+
+/**
+ * Reduced copies of the sprites of particles, each half the size of the previous one, so that
+ * shrunk particles are drawn from a bitmap close to their size on screen instead of minifying the
+ * full resolution sprite.
+ * <p>
+ * The levels of a sprite are generated once and shared by every particle and particle system
+ * drawing it, for as long as the sprite itself is referenced.
+ *
+ * @see ParticleSystem#setMipmapping(boolean)
+ */
+final class MipmapCache {
+
+	private static final int MAX_LEVELS = 6;
+	private static final Bitmap[] NO_LEVELS = new Bitmap[0];
+
+	// The reduced levels of each sprite, without the sprite itself so that it can be collected
+	private static final WeakHashMap<Bitmap, Bitmap[]> sLevels = new WeakHashMap<>();
+
+	private MipmapCache() {}
+
+	/**
+	 * Returns the reduced levels of a sprite, generating them on first use. Level {@code i} of
+	 * the returned array is {@code 2^(i+1)} times smaller than the sprite.
+	 */
+	@NonNull
+	static Bitmap[] getLevels(@NonNull Bitmap sprite) {
+		synchronized (sLevels) {
+			Bitmap[] levels = sLevels.get(sprite);
+			if (levels == null) {
+				levels = generateLevels(sprite);
+				sLevels.put(sprite, levels);
+			}
+			return levels;
+		}
+	}
+
+	/**
+	 * Drops the levels of all the sprites, which are generated again when next needed. Particles
+	 * that drew a sprite shrunk keep its levels until they are trimmed themselves.
+	 *
+	 * @return The number of bytes of the dropped levels.
+	 */
+	static long trim() {
+		synchronized (sLevels) {
+			long byteCount = 0;
+			for (Bitmap[] levels : sLevels.values()) {
+				for (Bitmap level : levels) {
+					byteCount += level.getByteCount();
+				}
+			}
+			sLevels.clear();
+			return byteCount;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of the given levels that are not in the cache anymore, which
+	 * are released once no particle references them. Levels still in the cache are counted by
+	 * {@link #trim()} instead.
+	 */
+	static long getUncachedByteCount(@NonNull Collection<Bitmap[]> levels) {
+		synchronized (sLevels) {
+			long byteCount = 0;
+			for (Bitmap[] spriteLevels : levels) {
+				if (sLevels.containsValue(spriteLevels)) {
+					continue;
+				}
+				for (Bitmap level : spriteLevels) {
+					byteCount += level.getByteCount();
+				}
+			}
+			return byteCount;
+		}
+	}
+
+	private static Bitmap[] generateLevels(Bitmap sprite) {
+		// Hardware bitmaps cannot be read back to be reduced
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && sprite.getConfig() == Bitmap.Config.HARDWARE) {
+			return NO_LEVELS;
+		}
+		int count = 0;
+		for (int size = Math.min(sprite.getWidth(), sprite.getHeight()); size >= 2 && count < MAX_LEVELS; size /= 2) {
+			count++;
+		}
+		Bitmap[] levels = new Bitmap[count];
+		Bitmap previous = sprite;
+		for (int i = 0; i < count; i++) {
+			levels[i] = Bitmap.createScaledBitmap(previous, previous.getWidth() / 2,
+					previous.getHeight() / 2, true);
+			previous = levels[i];
+		}
+		return levels;
+	}
+
+	/**
+	 * Returns the bitmap to draw a sprite at the given scale: the smallest level that is still at
+	 * least as large as the particle on screen.
+	 */
+	@NonNull
+	static Bitmap select(@NonNull Bitmap sprite, @NonNull Bitmap[] levels, float scale) {
+		int level = -1;
+		while (scale <= 0.5f && level < levels.length - 1) {
+			scale *= 2;
+			level++;
+		}
+		return level < 0 ? sprite : levels[level];
+	}
+}
@@ -18,12 +18,16 @@ package androidx.particles;
 
 import java.util.List;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.Px;
 import androidx.particles.modifiers.ParticleModifier;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LightingColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 
@@ -32,6 +36,9 @@ import android.graphics.Paint;
  */
 public class Particle {
 
+	// Bounds the work of an update after a long pause when integrating step by step
+	private static final int MAX_STEPS_PER_UPDATE = 16;
+
 	protected Bitmap mImage;
 	
 	@Px
@@ -41,6 +48,12 @@ public class Particle {
 	
 	public float mScale = 1f;
 	public int mAlpha = 255;
+	/**
+	 * The color of the particle. Alpha mask sprites are drawn in this color, other sprites are
+	 * multiplied by it. Its alpha is ignored, see {@link #mAlpha}.
+	 */
+	@ColorInt
+	public int mColor = Color.WHITE;
 	
 	public float mInitialRotation = 0f;
 	
@@ -66,6 +79,10 @@ public class Particle {
 
 	protected long mStartingMillisecond;
 
+	private long mSystemTime;
+	private long mAge;
+	private long mFrameDelta;
+
 	@Px
 	private int mBitmapHalfWidth;
 	@Px
@@ -73,6 +90,38 @@ public class Particle {
 
 	private List<ParticleModifier> mModifiers;
 
+	// Step by step integration state, the closed form trajectory is used when the timestep is 0
+	private int mTimestep;
+	private long mSimulatedAge;
+	@Px
+	private float mSimulatedX;
+	@Px
+	private float mSimulatedY;
+	@Px
+	private float mPreviousX;
+	@Px
+	private float mPreviousY;
+	private float mVelocityX;
+	private float mVelocityY;
+
+	// Reduced levels of the sprite, looked up again only when the sprite changes
+	private boolean mMipmapping;
+	private Bitmap mMipmapSprite;
+	private Bitmap[] mMipmaps;
+
+	// Trajectory played back instead of being simulated, with its variation
+	private BakedEffect mBakedEffect;
+	private int mBakedTrajectory;
+	private boolean mBakedMirror;
+	private float mBakedAngle;
+	private float mBakedCos;
+	private float mBakedSin;
+
+	// The color currently applied to the paint, and whether it was applied for an alpha mask
+	@ColorInt
+	private int mPaintColor = Color.WHITE;
+	private boolean mPaintMask;
+
 
 	protected Particle() {		
 		mMatrix = new Matrix();
@@ -86,7 +135,15 @@ public class Particle {
 
 	public void init() {
 		mScale = 1;
-		mAlpha = 255;	
+		mAlpha = 255;
+		mColor = Color.WHITE;
+		// A pooled particle may have been initialized by another particle system
+		mInitialRotation = 0;
+		mRotationSpeed = 0;
+		mSpeedX = 0;
+		mSpeedY = 0;
+		mAccelerationX = 0;
+		mAccelerationY = 0;
 	}
 	
 	public void configure(long timeToLive, @Px float emitterX, @Px float emitterY) {
@@ -106,8 +163,21 @@ public class Particle {
 		if (realMilliseconds > mTimeToLive) {
 			return false;
 		}
-		mCurrentX = mInitialX+mSpeedX*realMilliseconds+mAccelerationX*realMilliseconds*realMilliseconds;
-		mCurrentY = mInitialY+mSpeedY*realMilliseconds+mAccelerationY*realMilliseconds*realMilliseconds;
+		mSystemTime = milliseconds;
+		mFrameDelta = realMilliseconds - mAge;
+		mAge = realMilliseconds;
+		if (mBakedEffect != null) {
+			mBakedEffect.sample(this, mBakedTrajectory, realMilliseconds, mBakedMirror, mBakedAngle,
+					mBakedCos, mBakedSin);
+			return true;
+		}
+		if (mTimestep > 0) {
+			integrate(realMilliseconds);
+		}
+		else {
+			mCurrentX = mInitialX+mSpeedX*realMilliseconds+mAccelerationX*realMilliseconds*realMilliseconds;
+			mCurrentY = mInitialY+mSpeedY*realMilliseconds+mAccelerationY*realMilliseconds*realMilliseconds;
+		}
 		mRotation = mInitialRotation + mRotationSpeed*realMilliseconds/1000;
 		for (int i=0; i<mModifiers.size(); i++) {
 			mModifiers.get(i).apply(this, realMilliseconds);
@@ -115,17 +185,277 @@ public class Particle {
 		return true;
 	}
 	
+	// Advances the simulation in fixed steps up to the given age, then interpolates the position
+	// between the last two steps
+	private void integrate(long age) {
+		int steps = 0;
+		while (mSimulatedAge + mTimestep <= age) {
+			if (steps == MAX_STEPS_PER_UPDATE) {
+				// Drop the time the simulation cannot catch up with
+				mSimulatedAge = age - (age - mSimulatedAge) % mTimestep;
+				mPreviousX = mSimulatedX;
+				mPreviousY = mSimulatedY;
+				break;
+			}
+			mPreviousX = mSimulatedX;
+			mPreviousY = mSimulatedY;
+			// Semi-implicit Euler, with the acceleration convention of the closed form x0 + v*t + a*t*t
+			mVelocityX += 2*mAccelerationX*mTimestep;
+			mVelocityY += 2*mAccelerationY*mTimestep;
+			mSimulatedX += mVelocityX*mTimestep;
+			mSimulatedY += mVelocityY*mTimestep;
+			mSimulatedAge += mTimestep;
+			steps++;
+		}
+		float alpha = (float) (age - mSimulatedAge) / mTimestep;
+		mCurrentX = mPreviousX + (mSimulatedX - mPreviousX)*alpha;
+		mCurrentY = mPreviousY + (mSimulatedY - mPreviousY)*alpha;
+	}
+
+	/**
+	 * Integrates the trajectory step by step instead of in closed form. Takes effect at the next
+	 * activation.
+	 *
+	 * @param timestep The length of a step in milliseconds, or {@code 0} for the closed form.
+	 */
+	void setTimestep(int timestep) {
+		mTimestep = timestep;
+	}
+
+	/**
+	 * Returns whether the particle plays a baked trajectory back instead of being simulated.
+	 */
+	boolean isBaked() {
+		return mBakedEffect != null;
+	}
+
+	/**
+	 * Draws the particle from a reduced copy of its sprite when it is shrunk.
+	 *
+	 * @see MipmapCache
+	 */
+	void setMipmapping(boolean mipmapping) {
+		mMipmapping = mipmapping;
+	}
+
+	/**
+	 * Drops the reduced copies of the sprite, which are looked up again when next drawn shrunk.
+	 *
+	 * @return The dropped levels, or {@code null} if the particle had none.
+	 */
+	@Nullable
+	Bitmap[] trimMemory() {
+		Bitmap[] levels = mMipmaps;
+		mMipmapSprite = null;
+		mMipmaps = null;
+		return levels;
+	}
+
+	/**
+	 * Plays a baked trajectory back instead of simulating the particle. Takes effect at the next
+	 * activation.
+	 *
+	 * @param effect The baked effect, or {@code null} to simulate the particle.
+	 * @param trajectory The index of the trajectory in the effect.
+	 * @param mirror Whether to mirror the trajectory horizontally.
+	 * @param angle The rotation of the trajectory around the emitter in degrees.
+	 */
+	void setBakedTrajectory(BakedEffect effect, int trajectory, boolean mirror, float angle) {
+		mBakedEffect = effect;
+		if (effect != null) {
+			mBakedTrajectory = trajectory;
+			mBakedMirror = mirror;
+			mBakedAngle = angle;
+			mBakedCos = (float) Math.cos(Math.toRadians(angle));
+			mBakedSin = (float) Math.sin(Math.toRadians(angle));
+			mColor = effect.getColor(trajectory);
+		}
+	}
+
+	// Places the particle relative to the emitter from a baked trajectory
+	void setBakedState(@Px float centerX, @Px float centerY, float rotation, float scale, int alpha) {
+		mCurrentX = mInitialX + centerX;
+		mCurrentY = mInitialY + centerY;
+		mRotation = rotation;
+		mScale = scale;
+		mAlpha = alpha;
+	}
+
+	/**
+	 * Returns the rotation of the particle in degrees at its last update.
+	 */
+	public float getRotation() {
+		return mRotation;
+	}
+
+	/**
+	 * Restores the drawn state of a particle, as recorded by a {@link ParticleRecorder}.
+	 */
+	void restore(@NonNull Bitmap image, @Px float x, @Px float y, float rotation, float scale,
+				 int alpha, @ColorInt int color) {
+		mImage = image;
+		mBitmapHalfWidth = image.getWidth()/2;
+		mBitmapHalfHeight = image.getHeight()/2;
+		mCurrentX = x;
+		mCurrentY = y;
+		mRotation = rotation;
+		mScale = scale;
+		mAlpha = alpha;
+		mColor = color;
+	}
+
+	/**
+	 * Returns the horizontal position of the center of the particle.
+	 */
+	@Px
+	public float getCenterX() {
+		return mCurrentX + mBitmapHalfWidth;
+	}
+
+	/**
+	 * Returns the vertical position of the center of the particle.
+	 */
+	@Px
+	public float getCenterY() {
+		return mCurrentY + mBitmapHalfHeight;
+	}
+
+	/**
+	 * Returns the time of the particle system in milliseconds at the last update of the particle.
+	 */
+	public long getSystemTime() {
+		return mSystemTime;
+	}
+
+	/**
+	 * Returns the age of the particle in milliseconds at its last update.
+	 */
+	public long getAge() {
+		return mAge;
+	}
+
+	/**
+	 * Returns the milliseconds elapsed between the last two updates of the particle.
+	 */
+	public long getFrameDelta() {
+		return mFrameDelta;
+	}
+
+	/**
+	 * Returns the horizontal velocity of the particle at its last update, in pixels per millisecond.
+	 */
+	public float getVelocityX() {
+		if (mTimestep > 0) {
+			return mVelocityX;
+		}
+		return mSpeedX + 2*mAccelerationX*mAge;
+	}
+
+	/**
+	 * Returns the vertical velocity of the particle at its last update, in pixels per millisecond.
+	 */
+	public float getVelocityY() {
+		if (mTimestep > 0) {
+			return mVelocityY;
+		}
+		return mSpeedY + 2*mAccelerationY*mAge;
+	}
+
+	/**
+	 * Changes the velocity of the particle from its current position on, keeping its acceleration.
+	 * Can be used by modifiers to apply forces and impulses.
+	 *
+	 * @param velocityX The new horizontal velocity in pixels per millisecond.
+	 * @param velocityY The new vertical velocity in pixels per millisecond.
+	 */
+	public void setVelocity(float velocityX, float velocityY) {
+		addVelocity(velocityX - getVelocityX(), velocityY - getVelocityY());
+	}
+
+	/**
+	 * Adds to the velocity of the particle from its current position on.
+	 *
+	 * @param deltaX The horizontal velocity change in pixels per millisecond.
+	 * @param deltaY The vertical velocity change in pixels per millisecond.
+	 */
+	public void addVelocity(float deltaX, float deltaY) {
+		if (mTimestep > 0) {
+			mVelocityX += deltaX;
+			mVelocityY += deltaY;
+			return;
+		}
+		mSpeedX += deltaX;
+		mSpeedY += deltaY;
+		// Move the start of the trajectory so that the current position is kept
+		mInitialX -= deltaX*mAge;
+		mInitialY -= deltaY*mAge;
+	}
+
+	/**
+	 * Moves the particle, including the rest of its trajectory.
+	 *
+	 * @param dx The horizontal offset in pixels.
+	 * @param dy The vertical offset in pixels.
+	 */
+	public void offsetPosition(@Px float dx, @Px float dy) {
+		mInitialX += dx;
+		mInitialY += dy;
+		mSimulatedX += dx;
+		mSimulatedY += dy;
+		mPreviousX += dx;
+		mPreviousY += dy;
+		mCurrentX += dx;
+		mCurrentY += dy;
+	}
+
 	public void draw(@NonNull Canvas c) {
+		Bitmap image = mImage;
 		mMatrix.reset();
+		if (mMipmapping && mScale <= 0.5f) {
+			if (mMipmapSprite != mImage) {
+				mMipmaps = MipmapCache.getLevels(mImage);
+				mMipmapSprite = mImage;
+			}
+			image = MipmapCache.select(mImage, mMipmaps, mScale);
+			// Map the reduced bitmap onto the sprite, the rest of the transformation is unchanged
+			mMatrix.setScale((float) mImage.getWidth() / image.getWidth(),
+					(float) mImage.getHeight() / image.getHeight());
+		}
 		mMatrix.postRotate(mRotation, mBitmapHalfWidth, mBitmapHalfHeight);
 		mMatrix.postScale(mScale, mScale, mBitmapHalfWidth, mBitmapHalfHeight);
 		mMatrix.postTranslate(mCurrentX, mCurrentY);
+		boolean mask = mImage.getConfig() == Bitmap.Config.ALPHA_8;
+		if (mColor != mPaintColor || mask != mPaintMask) {
+			applyColor(mask);
+		}
 		mPaint.setAlpha(mAlpha);		
-		c.drawBitmap(mImage, mMatrix, mPaint);
+		c.drawBitmap(image, mMatrix, mPaint);
+	}
+
+	// Alpha masks are filled with the color of the paint, other sprites go through a filter
+	private void applyColor(boolean mask) {
+		mPaintColor = mColor;
+		mPaintMask = mask;
+		mPaint.setColor(mColor);
+		if (mask || mColor == Color.WHITE) {
+			mPaint.setColorFilter(null);
+		}
+		else {
+			mPaint.setColorFilter(new LightingColorFilter(mColor & 0xFFFFFF, 0));
+		}
 	}
 
 	public Particle activate(long startingMillisecond, @NonNull List<ParticleModifier> modifiers) {
 		mStartingMillisecond = startingMillisecond;
+		mAge = 0;
+		mFrameDelta = 0;
+		mSimulatedAge = 0;
+		mSimulatedX = mInitialX;
+		mSimulatedY = mInitialY;
+		mPreviousX = mInitialX;
+		mPreviousY = mInitialY;
+		mVelocityX = mSpeedX;
+		mVelocityY = mSpeedY;
 		// We do store a reference to the list, there is no need to copy, since the modifiers do not care about states
 		mModifiers = modifiers;
 		return this;
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A budget of particles shared by several {@link ParticleSystem}s.
+ * <p>
+ * Particle systems request capacity from their budget every time they activate a particle. Each
+ * priority may only fill a share of the capacity: low priority systems are refused new particles
+ * once half of the capacity is used, normal priority systems at 80 %, and high priority systems
+ * only when the capacity is exhausted. The usage of every particle system is accounted, see
+ * {@link #getUsages()}.
+ * <p>
+ * All particle systems use the process-wide {@link #getDefault() default budget} unless configured
+ * otherwise, which is unlimited until its capacity is set.
+ *
+ * @see ParticleSystem#setPriority(int)
+ * @see ParticleSystem#setBudget(ParticleBudget)
+ */
+public class ParticleBudget {
+
+	public static final int PRIORITY_LOW = 0;
+	public static final int PRIORITY_NORMAL = 1;
+	public static final int PRIORITY_HIGH = 2;
+
+	// Share of the capacity each priority may fill
+	private static final float[] PRIORITY_SHARES = {0.5f, 0.8f, 1f};
+
+	private static final ParticleBudget sDefault = new ParticleBudget(Integer.MAX_VALUE);
+
+	private int mCapacity;
+	private int mParticleCount;
+	private final ArrayList<Allocation> mAllocations = new ArrayList<>();
+
+	/**
+	 * The usage of a budget by a single particle system.
+	 */
+	public static final class Usage {
+
+		@Nullable
+		private final ParticleSystem mSystem;
+		private final int mPriority;
+		private final int mParticleCount;
+		private final int mPeakParticleCount;
+		private final int mRefusedCount;
+
+		Usage(@Nullable ParticleSystem system, int priority, int particleCount, int peakParticleCount,
+			  int refusedCount) {
+			mSystem = system;
+			mPriority = priority;
+			mParticleCount = particleCount;
+			mPeakParticleCount = peakParticleCount;
+			mRefusedCount = refusedCount;
+		}
+
+		/**
+		 * Returns the particle system, or {@code null} if it has been garbage collected.
+		 */
+		@Nullable
+		public ParticleSystem getSystem() {
+			return mSystem;
+		}
+
+		public int getPriority() {
+			return mPriority;
+		}
+
+		/**
+		 * Returns the number of active particles.
+		 */
+		public int getParticleCount() {
+			return mParticleCount;
+		}
+
+		/**
+		 * Returns the highest number of simultaneously active particles.
+		 */
+		public int getPeakParticleCount() {
+			return mPeakParticleCount;
+		}
+
+		/**
+		 * Returns how many particles have been refused by the budget.
+		 */
+		public int getRefusedCount() {
+			return mRefusedCount;
+		}
+	}
+
+	/**
+	 * The capacity held by a single particle system. Only used by the particle system itself.
+	 */
+	static final class Allocation {
+
+		private final ParticleBudget mBudget;
+		private final WeakReference<ParticleSystem> mSystem;
+		private final int mPriority;
+		private int mParticleCount;
+		private int mPeakParticleCount;
+		private int mRefusedCount;
+
+		Allocation(ParticleBudget budget, ParticleSystem system, int priority) {
+			mBudget = budget;
+			mSystem = new WeakReference<>(system);
+			mPriority = priority;
+		}
+
+		/**
+		 * Requests capacity for one more particle.
+		 *
+		 * @return {@code true} if the particle may be activated.
+		 */
+		boolean tryAcquire() {
+			synchronized (mBudget) {
+				if (mBudget.mParticleCount >= mBudget.mCapacity * PRIORITY_SHARES[mPriority]) {
+					mRefusedCount++;
+					return false;
+				}
+				mBudget.mParticleCount++;
+				mParticleCount++;
+				if (mParticleCount > mPeakParticleCount) {
+					mPeakParticleCount = mParticleCount;
+				}
+				return true;
+			}
+		}
+
+		/**
+		 * Gives back the capacity of expired particles.
+		 */
+		void release(int count) {
+			synchronized (mBudget) {
+				count = Math.min(count, mParticleCount);
+				mBudget.mParticleCount -= count;
+				mParticleCount -= count;
+			}
+		}
+
+		/**
+		 * Gives back all the capacity and removes this allocation from the budget.
+		 */
+		void close() {
+			synchronized (mBudget) {
+				mBudget.mParticleCount -= mParticleCount;
+				mParticleCount = 0;
+				mBudget.mAllocations.remove(this);
+			}
+		}
+	}
+
+	/**
+	 * Creates a budget.
+	 *
+	 * @param capacity The maximum number of active particles of all particle systems using the budget.
+	 */
+	public ParticleBudget(int capacity) {
+		mCapacity = capacity;
+	}
+
+	/**
+	 * Returns the process-wide budget used by default.
+	 */
+	@NonNull
+	public static ParticleBudget getDefault() {
+		return sDefault;
+	}
+
+	/**
+	 * Sets the maximum number of active particles of all particle systems using the budget.
+	 * Lowering it does not remove active particles, but no new ones are granted until enough
+	 * have expired.
+	 *
+	 * @param capacity The new capacity.
+	 */
+	public synchronized void setCapacity(int capacity) {
+		mCapacity = capacity;
+	}
+
+	public synchronized int getCapacity() {
+		return mCapacity;
+	}
+
+	/**
+	 * Returns the number of active particles of all particle systems using the budget.
+	 */
+	public synchronized int getParticleCount() {
+		return mParticleCount;
+	}
+
+	/**
+	 * Returns the usage of each particle system that is currently running with this budget.
+	 */
+	@NonNull
+	public synchronized List<Usage> getUsages() {
+		List<Usage> usages = new ArrayList<>(mAllocations.size());
+		for (int i = 0; i < mAllocations.size(); i++) {
+			Allocation allocation = mAllocations.get(i);
+			usages.add(new Usage(allocation.mSystem.get(), allocation.mPriority,
+					allocation.mParticleCount, allocation.mPeakParticleCount, allocation.mRefusedCount));
+		}
+		return usages;
+	}
+
+	@NonNull
+	synchronized Allocation open(@NonNull ParticleSystem system,
+								 @IntRange(from=PRIORITY_LOW, to=PRIORITY_HIGH) int priority) {
+		Allocation allocation = new Allocation(this, system, priority);
+		mAllocations.add(allocation);
+		return allocation;
+	}
+}
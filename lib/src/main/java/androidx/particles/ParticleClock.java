@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+/**
+ * A monotonic time source driving the continuously emitting {@link ParticleSystem}s. Can be
+ * replaced to make the simulation deterministic, for instance in tests.
+ *
+ * @see ParticleSystem#setClock(ParticleClock)
+ */
+public interface ParticleClock {
+
+	/**
+	 * The default clock, based on {@link System#nanoTime()}.
+	 */
+	ParticleClock SYSTEM = new ParticleClock() {
+		@Override
+		public long uptimeMillis() {
+			return System.nanoTime() / 1_000_000;
+		}
+	};
+
+	/**
+	 * Returns the current time in milliseconds. Only the difference between two values is
+	 * meaningful, and the time must never go backwards.
+	 */
+	long uptimeMillis();
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import androidx.annotation.FloatRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+
+import java.util.ArrayList;
+
+/**
+ * Makes the particles of a {@link ParticleSystem} bounce inside a container and off obstacles.
+ * <p>
+ * Obstacles are rectangles, either fixed or following a view through a {@link ViewAnchor}. They
+ * are sorted into a uniform grid that is only rebuilt when an obstacle moves, so each particle is
+ * only tested against the obstacles of its own cell, or of the cells around its path since the
+ * previous update when it has not ended inside an obstacle, so that fast particles do not go
+ * through thin obstacles.
+ *
+ * @see ParticleSystem#setCollider(ParticleCollider)
+ */
+public class ParticleCollider {
+
+	private final float mRestitution;
+	private final float mFriction;
+	private float mParticleRadius;
+
+	// Registered obstacles, changed on the UI thread and read when preparing an update
+	private final ArrayList<Obstacle> mObstacles = new ArrayList<>();
+	private Obstacle mContainer;
+
+	// Snapshot used while colliding, only accessed from the update thread
+	private boolean mHasContainer;
+	private float mContainerLeft;
+	private float mContainerTop;
+	private float mContainerRight;
+	private float mContainerBottom;
+	private int mObstacleCount;
+	private float[] mRects = new float[0];
+	private boolean mRectsChanged;
+
+	// Broadphase grid over the obstacles, expanded by the particle radius
+	private float mGridLeft;
+	private float mGridTop;
+	private float mCellWidth;
+	private float mCellHeight;
+	private int mColumns;
+	private int mRows;
+	// Start of each cell in mCellObstacles, with one extra entry marking the end of the last cell
+	private int[] mCellStarts = new int[1];
+	private int[] mCellObstacles = new int[0];
+	private int[] mCursors = new int[0];
+
+	private static class Obstacle {
+
+		final ViewAnchor mAnchor;
+		final float mLeft;
+		final float mTop;
+		final float mRight;
+		final float mBottom;
+
+		Obstacle(ViewAnchor anchor, float left, float top, float right, float bottom) {
+			mAnchor = anchor;
+			mLeft = left;
+			mTop = top;
+			mRight = right;
+			mBottom = bottom;
+		}
+
+		float getLeft() {
+			return mAnchor != null ? mAnchor.getLeft() : mLeft;
+		}
+
+		float getTop() {
+			return mAnchor != null ? mAnchor.getTop() : mTop;
+		}
+
+		float getRight() {
+			return mAnchor != null ? mAnchor.getRight() : mRight;
+		}
+
+		float getBottom() {
+			return mAnchor != null ? mAnchor.getBottom() : mBottom;
+		}
+	}
+
+	/**
+	 * Creates a collider without container or obstacles.
+	 *
+	 * @param restitution The fraction of the velocity kept when bouncing, {@code 0} to stop and
+	 *                    {@code 1} for a perfectly elastic bounce.
+	 * @param friction The fraction of the velocity along the surface lost when bouncing.
+	 */
+	public ParticleCollider(@FloatRange(from=0, to=1) float restitution,
+							@FloatRange(from=0, to=1) float friction) {
+		mRestitution = restitution;
+		mFriction = friction;
+	}
+
+	/**
+	 * Sets the radius of the particles, so that their sprites touch the edges instead of their
+	 * centers. The default is {@code 0}.
+	 *
+	 * @param radius The radius in pixels.
+	 * @return This.
+	 */
+	@NonNull
+	public synchronized ParticleCollider setParticleRadius(@Px float radius) {
+		mParticleRadius = radius;
+		mRectsChanged = true;
+		return this;
+	}
+
+	/**
+	 * Keeps the particles inside a fixed rectangle.
+	 *
+	 * @return This.
+	 */
+	@NonNull
+	public synchronized ParticleCollider setContainer(@Px float left, @Px float top, @Px float right,
+													  @Px float bottom) {
+		mContainer = new Obstacle(null, left, top, right, bottom);
+		return this;
+	}
+
+	/**
+	 * Keeps the particles inside the bounds of a view, usually the parent of the particle system.
+	 *
+	 * @param anchor The anchor of the view.
+	 * @return This.
+	 */
+	@NonNull
+	public synchronized ParticleCollider setContainer(@NonNull ViewAnchor anchor) {
+		mContainer = new Obstacle(anchor, 0, 0, 0, 0);
+		return this;
+	}
+
+	/**
+	 * Adds a fixed rectangular obstacle.
+	 *
+	 * @return This.
+	 */
+	@NonNull
+	public synchronized ParticleCollider addObstacle(@Px float left, @Px float top, @Px float right,
+													 @Px float bottom) {
+		mObstacles.add(new Obstacle(null, left, top, right, bottom));
+		return this;
+	}
+
+	/**
+	 * Adds an obstacle following the bounds of a view, usually a sibling of the particle system.
+	 *
+	 * @param anchor The anchor of the view, relative to the parent of the particle system.
+	 * @return This.
+	 */
+	@NonNull
+	public synchronized ParticleCollider addObstacle(@NonNull ViewAnchor anchor) {
+		mObstacles.add(new Obstacle(anchor, 0, 0, 0, 0));
+		return this;
+	}
+
+	/**
+	 * Removes all obstacles, but keeps the container.
+	 */
+	public synchronized void clearObstacles() {
+		mObstacles.clear();
+	}
+
+	/**
+	 * Takes a snapshot of the obstacles before an update, rebuilding the grid if any has moved.
+	 */
+	synchronized void prepare() {
+		mHasContainer = mContainer != null;
+		if (mHasContainer) {
+			mContainerLeft = mContainer.getLeft() + mParticleRadius;
+			mContainerTop = mContainer.getTop() + mParticleRadius;
+			mContainerRight = mContainer.getRight() - mParticleRadius;
+			mContainerBottom = mContainer.getBottom() - mParticleRadius;
+		}
+		int count = mObstacles.size();
+		if (count != mObstacleCount) {
+			mObstacleCount = count;
+			if (mRects.length < count * 4) {
+				mRects = new float[count * 4];
+			}
+			mRectsChanged = true;
+		}
+		for (int i = 0; i < count; i++) {
+			Obstacle obstacle = mObstacles.get(i);
+			mRectsChanged |= setRect(i * 4, obstacle.getLeft() - mParticleRadius);
+			mRectsChanged |= setRect(i * 4 + 1, obstacle.getTop() - mParticleRadius);
+			mRectsChanged |= setRect(i * 4 + 2, obstacle.getRight() + mParticleRadius);
+			mRectsChanged |= setRect(i * 4 + 3, obstacle.getBottom() + mParticleRadius);
+		}
+		if (mRectsChanged) {
+			rebuildGrid();
+			mRectsChanged = false;
+		}
+	}
+
+	private boolean setRect(int index, float value) {
+		if (mRects[index] == value) {
+			return false;
+		}
+		mRects[index] = value;
+		return true;
+	}
+
+	private void rebuildGrid() {
+		if (mObstacleCount == 0) {
+			mColumns = 0;
+			mRows = 0;
+			return;
+		}
+		float left = Float.MAX_VALUE;
+		float top = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE;
+		float bottom = -Float.MAX_VALUE;
+		for (int i = 0; i < mObstacleCount; i++) {
+			left = Math.min(left, mRects[i * 4]);
+			top = Math.min(top, mRects[i * 4 + 1]);
+			right = Math.max(right, mRects[i * 4 + 2]);
+			bottom = Math.max(bottom, mRects[i * 4 + 3]);
+		}
+		// About two cells per obstacle, keeping the cells close to square
+		float width = Math.max(right - left, 1);
+		float height = Math.max(bottom - top, 1);
+		float cellSize = (float) Math.sqrt(width * height / (mObstacleCount * 2));
+		mGridLeft = left;
+		mGridTop = top;
+		mColumns = Math.max(1, Math.min(256, (int) Math.ceil(width / cellSize)));
+		mRows = Math.max(1, Math.min(256, (int) Math.ceil(height / cellSize)));
+		mCellWidth = width / mColumns;
+		mCellHeight = height / mRows;
+
+		int cellCount = mColumns * mRows;
+		if (mCellStarts.length < cellCount + 1) {
+			mCellStarts = new int[cellCount + 1];
+			mCursors = new int[cellCount];
+		}
+		for (int i = 0; i <= cellCount; i++) {
+			mCellStarts[i] = 0;
+		}
+		for (int i = 0; i < mObstacleCount; i++) {
+			for (int row = getRow(mRects[i * 4 + 1]); row <= getRow(mRects[i * 4 + 3]); row++) {
+				for (int column = getColumn(mRects[i * 4]); column <= getColumn(mRects[i * 4 + 2]); column++) {
+					mCellStarts[row * mColumns + column + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < cellCount; i++) {
+			mCellStarts[i + 1] += mCellStarts[i];
+			mCursors[i] = mCellStarts[i];
+		}
+		if (mCellObstacles.length < mCellStarts[cellCount]) {
+			mCellObstacles = new int[mCellStarts[cellCount]];
+		}
+		for (int i = 0; i < mObstacleCount; i++) {
+			for (int row = getRow(mRects[i * 4 + 1]); row <= getRow(mRects[i * 4 + 3]); row++) {
+				for (int column = getColumn(mRects[i * 4]); column <= getColumn(mRects[i * 4 + 2]); column++) {
+					mCellObstacles[mCursors[row * mColumns + column]++] = i;
+				}
+			}
+		}
+	}
+
+	private int getColumn(float x) {
+		return Math.min(mColumns - 1, Math.max(0, (int) ((x - mGridLeft) / mCellWidth)));
+	}
+
+	private int getRow(float y) {
+		return Math.min(mRows - 1, Math.max(0, (int) ((y - mGridTop) / mCellHeight)));
+	}
+
+	/**
+	 * Bounces a particle off the container and the obstacles it has entered or crossed since the
+	 * previous update.
+	 */
+	void collide(@NonNull Particle particle) {
+		float x = particle.getCenterX();
+		float y = particle.getCenterY();
+		float velocityX = particle.getVelocityX();
+		float velocityY = particle.getVelocityY();
+		float startX = x;
+		float startY = y;
+		long frameDelta = particle.getFrameDelta();
+		boolean bounced = false;
+		boolean entered = false;
+
+		if (mHasContainer) {
+			if (x < mContainerLeft || x > mContainerRight) {
+				x = x < mContainerLeft ? mContainerLeft : mContainerRight;
+				if ((x == mContainerLeft) == (velocityX < 0)) {
+					velocityX = -velocityX * mRestitution;
+					velocityY *= 1 - mFriction;
+				}
+				bounced = true;
+			}
+			if (y < mContainerTop || y > mContainerBottom) {
+				y = y < mContainerTop ? mContainerTop : mContainerBottom;
+				if ((y == mContainerTop) == (velocityY < 0)) {
+					velocityY = -velocityY * mRestitution;
+					velocityX *= 1 - mFriction;
+				}
+				bounced = true;
+			}
+		}
+
+		if (mColumns > 0 && x >= mGridLeft && y >= mGridTop
+				&& x <= mGridLeft + mColumns * mCellWidth && y <= mGridTop + mRows * mCellHeight) {
+			int cell = getRow(y) * mColumns + getColumn(x);
+			for (int i = mCellStarts[cell]; i < mCellStarts[cell + 1]; i++) {
+				int rect = mCellObstacles[i] * 4;
+				float left = mRects[rect];
+				float top = mRects[rect + 1];
+				float right = mRects[rect + 2];
+				float bottom = mRects[rect + 3];
+				if (x <= left || x >= right || y <= top || y >= bottom) {
+					continue;
+				}
+				entered = true;
+				// Push the particle out through the edge it has crossed since the previous update,
+				// or through the closest edge when the obstacle has moved onto it
+				float previousX = x - velocityX * frameDelta;
+				float previousY = y - velocityY * frameDelta;
+				boolean fromLeft = previousX <= left;
+				boolean fromRight = previousX >= right;
+				boolean fromTop = previousY <= top;
+				boolean fromBottom = previousY >= bottom;
+				boolean horizontal;
+				if ((fromLeft || fromRight) && (fromTop || fromBottom)) {
+					// Crossed near a corner, the edge crossed last is the one hit
+					float entryX = fromLeft ? (left - previousX) / (x - previousX)
+							: (previousX - right) / (previousX - x);
+					float entryY = fromTop ? (top - previousY) / (y - previousY)
+							: (previousY - bottom) / (previousY - y);
+					horizontal = entryX > entryY;
+				}
+				else if (fromLeft || fromRight || fromTop || fromBottom) {
+					horizontal = fromLeft || fromRight;
+				}
+				else {
+					horizontal = Math.min(x - left, right - x) < Math.min(y - top, bottom - y);
+				}
+				if (horizontal) {
+					boolean leftEdge = fromLeft || (!fromRight && x - left < right - x);
+					x = leftEdge ? left : right;
+					if (leftEdge == (velocityX > 0)) {
+						velocityX = -velocityX * mRestitution;
+						velocityY *= 1 - mFriction;
+					}
+				}
+				else {
+					boolean topEdge = fromTop || (!fromBottom && y - top < bottom - y);
+					y = topEdge ? top : bottom;
+					if (topEdge == (velocityY > 0)) {
+						velocityY = -velocityY * mRestitution;
+						velocityX *= 1 - mFriction;
+					}
+				}
+				bounced = true;
+			}
+		}
+
+		if (mColumns > 0 && !entered && frameDelta > 0) {
+			// A fast particle can cross a thin obstacle between two updates without ending inside,
+			// so look for the first obstacle along its path since the previous update
+			float previousX = x - velocityX * frameDelta;
+			float previousY = y - velocityY * frameDelta;
+			float dx = x - previousX;
+			float dy = y - previousY;
+			if (Math.max(previousX, x) >= mGridLeft && Math.max(previousY, y) >= mGridTop
+					&& Math.min(previousX, x) <= mGridLeft + mColumns * mCellWidth
+					&& Math.min(previousY, y) <= mGridTop + mRows * mCellHeight) {
+				int hit = -1;
+				float hitTime = 2;
+				boolean horizontal = false;
+				int lastRow = getRow(Math.max(previousY, y));
+				int lastColumn = getColumn(Math.max(previousX, x));
+				for (int row = getRow(Math.min(previousY, y)); row <= lastRow; row++) {
+					for (int column = getColumn(Math.min(previousX, x)); column <= lastColumn; column++) {
+						int cell = row * mColumns + column;
+						for (int i = mCellStarts[cell]; i < mCellStarts[cell + 1]; i++) {
+							int rect = mCellObstacles[i] * 4;
+							float enterX = getEntry(previousX, dx, mRects[rect], mRects[rect + 2]);
+							float enterY = getEntry(previousY, dy, mRects[rect + 1], mRects[rect + 3]);
+							float enter = Math.max(enterX, enterY);
+							float exit = Math.min(getExit(previousX, dx, mRects[rect], mRects[rect + 2]),
+									getExit(previousY, dy, mRects[rect + 1], mRects[rect + 3]));
+							if (enter >= 0 && enter < hitTime && enter < exit) {
+								hit = rect;
+								hitTime = enter;
+								horizontal = enterX > enterY;
+							}
+						}
+					}
+				}
+				if (hit >= 0 && hitTime <= 1) {
+					if (horizontal) {
+						x = dx > 0 ? mRects[hit] : mRects[hit + 2];
+						velocityX = -velocityX * mRestitution;
+						velocityY *= 1 - mFriction;
+					}
+					else {
+						y = dy > 0 ? mRects[hit + 1] : mRects[hit + 3];
+						velocityY = -velocityY * mRestitution;
+						velocityX *= 1 - mFriction;
+					}
+					bounced = true;
+				}
+			}
+		}
+
+		if (bounced) {
+			particle.offsetPosition(x - startX, y - startY);
+			particle.setVelocity(velocityX, velocityY);
+		}
+	}
+
+	// The fraction of a path along one axis where it enters the range between min and max
+	private static float getEntry(float start, float delta, float min, float max) {
+		if (delta == 0) {
+			return start > min && start < max ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+		}
+		return Math.min((min - start) / delta, (max - start) / delta);
+	}
+
+	// The fraction of a path along one axis where it leaves the range between min and max
+	private static float getExit(float start, float delta, float min, float max) {
+		if (delta == 0) {
+			return start > min && start < max ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+		}
+		return Math.max((min - start) / delta, (max - start) / delta);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * Draws every composited {@link ParticleSystem} of a parent view group into a single shared
+ * {@link ParticleField}, instead of stacking one full size view per system.
+ * <p>
+ * Systems are drawn in ascending layer order. Within a layer, systems sharing the same texture
+ * are drawn next to each other so that consecutive bitmap draws can be batched by the renderer,
+ * and otherwise in the order they were registered.
+ *
+ * @see ParticleSystem#setCompositorLayer(int)
+ */
+final class ParticleCompositor {
+
+	private static final WeakHashMap<ViewGroup, ParticleCompositor> sCompositors = new WeakHashMap<>();
+
+	private final ViewGroup mParentView;
+	private final ParticleField mDrawingView;
+	private final ArrayList<Entry> mEntries = new ArrayList<>();
+
+	private static class Entry {
+
+		final ParticleSystem mSystem;
+		final int mLayer;
+		final Bitmap mTexture;
+		final ArrayList<Particle> mParticles;
+
+		Entry(ParticleSystem system, int layer, Bitmap texture, ArrayList<Particle> particles) {
+			mSystem = system;
+			mLayer = layer;
+			mTexture = texture;
+			mParticles = particles;
+		}
+	}
+
+	private ParticleCompositor(@NonNull ViewGroup parentView) {
+		mParentView = parentView;
+		mDrawingView = new ParticleField(parentView.getContext());
+		mDrawingView.setCompositor(this);
+	}
+
+	/**
+	 * Returns the compositor of the given parent, creating it if needed.
+	 */
+	@NonNull
+	static ParticleCompositor obtain(@NonNull ViewGroup parentView) {
+		synchronized (sCompositors) {
+			ParticleCompositor compositor = sCompositors.get(parentView);
+			if (compositor == null) {
+				compositor = new ParticleCompositor(parentView);
+				sCompositors.put(parentView, compositor);
+			}
+			return compositor;
+		}
+	}
+
+	@NonNull
+	ParticleField getDrawingView() {
+		return mDrawingView;
+	}
+
+	/**
+	 * Registers the active particles of a system at the given layer. The shared view is added to
+	 * the parent when the first system gets registered.
+	 */
+	void register(@NonNull ParticleSystem system, int layer, @Nullable Bitmap texture,
+				  @NonNull ArrayList<Particle> particles) {
+		boolean wasEmpty;
+		synchronized (mEntries) {
+			wasEmpty = mEntries.isEmpty();
+			// Insert after the last system of the same layer sharing the texture, or else at the
+			// end of the layer, keeping the entries sorted by layer
+			int index = mEntries.size();
+			int sameTextureIndex = -1;
+			for (int i = 0; i < mEntries.size(); i++) {
+				Entry entry = mEntries.get(i);
+				if (entry.mLayer > layer) {
+					index = i;
+					break;
+				}
+				if (entry.mLayer == layer && entry.mTexture == texture) {
+					sameTextureIndex = i + 1;
+				}
+			}
+			if (sameTextureIndex != -1) {
+				index = sameTextureIndex;
+			}
+			mEntries.add(index, new Entry(system, layer, texture, particles));
+		}
+		if (wasEmpty) {
+			mParentView.addView(mDrawingView);
+		}
+	}
+
+	/**
+	 * Unregisters a system. The shared view is removed from the parent once no system is left.
+	 */
+	void unregister(@NonNull ParticleSystem system) {
+		boolean isEmpty;
+		synchronized (mEntries) {
+			for (int i = 0; i < mEntries.size(); i++) {
+				if (mEntries.get(i).mSystem == system) {
+					mEntries.remove(i);
+					break;
+				}
+			}
+			isEmpty = mEntries.isEmpty();
+		}
+		if (isEmpty) {
+			synchronized (sCompositors) {
+				sCompositors.remove(mParentView);
+			}
+			mParentView.removeView(mDrawingView);
+		}
+		else {
+			mDrawingView.postInvalidate();
+		}
+	}
+
+	void draw(@NonNull Canvas canvas) {
+		synchronized (mEntries) {
+			for (int i = 0; i < mEntries.size(); i++) {
+				Entry entry = mEntries.get(i);
+				AdaptiveQualityController controller = entry.mSystem.getQualityController();
+				long drawStart = controller != null ? System.nanoTime() : 0;
+				synchronized (entry.mParticles) {
+					for (int j = 0; j < entry.mParticles.size(); j++) {
+						entry.mParticles.get(j).draw(canvas);
+					}
+				}
+				if (controller != null) {
+					controller.addDrawTime(System.nanoTime() - drawStart);
+				}
+			}
+		}
+	}
+}
@@ -17,6 +17,7 @@
 package androidx.particles;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import android.content.Context;
 import android.graphics.Canvas;
@@ -29,6 +30,18 @@ import androidx.annotation.Nullable;
 class ParticleField extends View {
 
 	private ArrayList<Particle> mParticles;
+	private ParticleCompositor mCompositor;
+	private AdaptiveQualityController mQualityController;
+	private ParticleRenderer mRenderer = ParticleRenderer.CANVAS;
+	private final ArrayList<OnShownChangeListener> mOnShownChangeListeners = new ArrayList<>();
+
+	/**
+	 * Listener notified when the field may have started or stopped being visible on screen.
+	 */
+	interface OnShownChangeListener {
+
+		void onShownChange(boolean shown);
+	}
 
 	public ParticleField(Context context, @Nullable AttributeSet attrs, int defStyle) {
 		super(context, attrs, defStyle);
@@ -45,15 +58,72 @@ class ParticleField extends View {
 	public void setParticles(@NonNull ArrayList<Particle> particles) {
 		mParticles = particles;
 	}
+
+	void setQualityController(@Nullable AdaptiveQualityController controller) {
+		mQualityController = controller;
+	}
+
+	void setRenderer(@NonNull ParticleRenderer renderer) {
+		mRenderer = renderer;
+	}
+
+	void setCompositor(@NonNull ParticleCompositor compositor) {
+		mCompositor = compositor;
+	}
+
+	void addOnShownChangeListener(@NonNull OnShownChangeListener listener) {
+		mOnShownChangeListeners.add(listener);
+	}
+
+	void removeOnShownChangeListener(@NonNull OnShownChangeListener listener) {
+		mOnShownChangeListeners.remove(listener);
+	}
+
+	/**
+	 * Returns whether the field and all its ancestors are visible, in a visible window.
+	 */
+	boolean isShownOnScreen() {
+		return isShownOnScreen(this);
+	}
+
+	static boolean isShownOnScreen(@NonNull View view) {
+		return view.isShown() && view.getWindowVisibility() == VISIBLE;
+	}
+
+	static void dispatchShownChange(@NonNull View view, @NonNull List<OnShownChangeListener> listeners) {
+		boolean shown = isShownOnScreen(view);
+		// Iterate backwards, listeners may remove themselves
+		for (int i = listeners.size() - 1; i >= 0; i--) {
+			listeners.get(i).onShownChange(shown);
+		}
+	}
+
+	@Override
+	protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+		dispatchShownChange(this, mOnShownChangeListeners);
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		dispatchShownChange(this, mOnShownChangeListeners);
+	}
 	
 	@Override
 	protected void onDraw(@NonNull Canvas canvas) {
 		super.onDraw(canvas);
+		if (mCompositor != null) {
+			mCompositor.draw(canvas);
+			return;
+		}
+		long drawStart = mQualityController != null ? System.nanoTime() : 0;
 		// Draw all the particles
 		synchronized (mParticles) {
-			for (int i = 0; i < mParticles.size(); i++) {
-				mParticles.get(i).draw(canvas);
-			}
+			mRenderer.render(canvas, mParticles);
+		}
+		if (mQualityController != null) {
+			mQualityController.addDrawTime(System.nanoTime() - drawStart);
 		}
 	}
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * Trims the memory of the particle systems of the process when the system asks for it.
+ * <p>
+ * Particle systems register themselves the first time they are started, and the manager then
+ * receives {@link ComponentCallbacks2#onTrimMemory(int)} from the application context. Running
+ * particle systems are left untouched. Idle ones drop their reduced sprites and renderer caches
+ * from {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW}, and their pool of particles from
+ * {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}. The reduced sprites shared by all particle
+ * systems are dropped from {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} too, and the
+ * {@link ParticlePool#getShared() shared pool} of particles from
+ * {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}.
+ *
+ * @see ParticleSystem#trimMemory(int)
+ * @see ParticleSystem#release()
+ */
+public final class ParticleMemoryManager implements ComponentCallbacks2 {
+
+	private static final ParticleMemoryManager sInstance = new ParticleMemoryManager();
+
+	// The particle systems are not kept alive by the manager
+	private final WeakHashMap<ParticleSystem, Boolean> mSystems = new WeakHashMap<>();
+	private boolean mRegistered;
+	private long mReclaimedByteCount;
+
+	private ParticleMemoryManager() {}
+
+	/**
+	 * Returns the manager of the process.
+	 */
+	@NonNull
+	public static ParticleMemoryManager getInstance() {
+		return sInstance;
+	}
+
+	void register(@NonNull Context context, @NonNull ParticleSystem system) {
+		synchronized (mSystems) {
+			mSystems.put(system, Boolean.TRUE);
+			if (mRegistered) {
+				return;
+			}
+			mRegistered = true;
+		}
+		Context application = context.getApplicationContext();
+		(application != null ? application : context).registerComponentCallbacks(this);
+	}
+
+	void unregister(@NonNull ParticleSystem system) {
+		synchronized (mSystems) {
+			mSystems.remove(system);
+		}
+	}
+
+	/**
+	 * Trims the registered particle systems and the shared caches as for the given level, see
+	 * {@link ParticleSystem#trimMemory(int)}.
+	 *
+	 * @param level The trim level.
+	 * @return The number of bytes of bitmap memory no longer referenced.
+	 */
+	@MainThread
+	public long trimMemory(int level) {
+		List<ParticleSystem> systems;
+		synchronized (mSystems) {
+			systems = new ArrayList<>(mSystems.keySet());
+		}
+		long byteCount = 0;
+		for (int i = 0; i < systems.size(); i++) {
+			byteCount += systems.get(i).trimMemory(level);
+		}
+		if (level >= TRIM_MEMORY_RUNNING_LOW) {
+			byteCount += MipmapCache.trim();
+		}
+		if (level >= TRIM_MEMORY_UI_HIDDEN) {
+			ParticlePool.getShared().trim();
+		}
+		mReclaimedByteCount += byteCount;
+		return byteCount;
+	}
+
+	/**
+	 * Returns the number of bytes of bitmap memory reclaimed by all the trims so far.
+	 */
+	public long getReclaimedByteCount() {
+		return mReclaimedByteCount;
+	}
+
+	@Override
+	public void onTrimMemory(int level) {
+		trimMemory(level);
+	}
+
+	@Override
+	public void onLowMemory() {
+		trimMemory(TRIM_MEMORY_COMPLETE);
+	}
+
+	@Override
+	public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.AnimationDrawable;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Particles shared by the particle systems drawing the same sprites, so that creating a particle
+ * system for every effect does not create its particles again.
+ * <p>
+ * Particle systems using a pool check their particles out of it when started and return them
+ * when finished. The particles are kept by sprite, or by animation for animated particles, until
+ * the pool is {@link #trim() trimmed}. Checking out a pooled particle counts as a hit, creating a
+ * new one as a miss.
+ *
+ * @see ParticleSystem#setParticlePool(ParticlePool)
+ */
+public final class ParticlePool {
+
+	private static final ParticlePool sShared = new ParticlePool();
+
+	// The pooled particles by sprite or animation, both compared by identity
+	private final IdentityHashMap<Object, ArrayList<Particle>> mParticles = new IdentityHashMap<>();
+	private int mPooledCount;
+	private long mHitCount;
+	private long mMissCount;
+
+	/**
+	 * Returns the pool of the process, which is trimmed on memory pressure by the
+	 * {@link ParticleMemoryManager}.
+	 */
+	@NonNull
+	public static ParticlePool getShared() {
+		return sShared;
+	}
+
+	@NonNull
+	synchronized Particle acquire(@NonNull Bitmap sprite) {
+		Particle particle = poll(sprite);
+		return particle != null ? particle : new Particle(sprite);
+	}
+
+	@NonNull
+	synchronized Particle acquire(@NonNull AnimationDrawable animation) {
+		Particle particle = poll(animation);
+		return particle != null ? particle : new AnimatedParticle(animation);
+	}
+
+	private Particle poll(Object source) {
+		ArrayList<Particle> particles = mParticles.get(source);
+		if (particles == null || particles.isEmpty()) {
+			mMissCount++;
+			return null;
+		}
+		mHitCount++;
+		mPooledCount--;
+		return particles.remove(particles.size() - 1);
+	}
+
+	synchronized void release(@NonNull List<Particle> particles) {
+		for (int i = 0; i < particles.size(); i++) {
+			Particle particle = particles.get(i);
+			Object source = particle instanceof AnimatedParticle
+					? ((AnimatedParticle) particle).getAnimationDrawable()
+					: particle.mImage;
+			ArrayList<Particle> pooled = mParticles.get(source);
+			if (pooled == null) {
+				pooled = new ArrayList<>();
+				mParticles.put(source, pooled);
+			}
+			pooled.add(particle);
+		}
+		mPooledCount += particles.size();
+	}
+
+	/**
+	 * Drops all the pooled particles.
+	 *
+	 * @return The number of particles dropped.
+	 */
+	public synchronized int trim() {
+		int count = mPooledCount;
+		mParticles.clear();
+		mPooledCount = 0;
+		return count;
+	}
+
+	/**
+	 * Returns the number of particles waiting in the pool.
+	 */
+	public synchronized int getPooledCount() {
+		return mPooledCount;
+	}
+
+	/**
+	 * Returns the number of particles checked out of the pool.
+	 */
+	public synchronized long getHitCount() {
+		return mHitCount;
+	}
+
+	/**
+	 * Returns the number of particles created because none was pooled for their sprite.
+	 */
+	public synchronized long getMissCount() {
+		return mMissCount;
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Records what a {@link ParticleSystem} draws, as a snapshot of all its active particles after
+ * every update, into an append-only file that a {@link ParticleReplayer} can play back.
+ * <p>
+ * The file starts with a header of {@code int} magic and version, followed by frames. A frame is
+ * its size in bytes after the size itself as an {@code int}, the time of the update as a
+ * {@code long}, the number of particles as an {@code int}, then for each particle its position,
+ * rotation and scale as {@code float}s, its color as an {@code int}, its sprite index as a
+ * {@code short} and its alpha as a {@code byte}. All numbers are big endian.
+ *
+ * @see ParticleSystem#setRecorder(ParticleRecorder)
+ */
+public class ParticleRecorder implements Closeable {
+
+	static final int MAGIC = 0x50524543; // "PREC"
+	static final int VERSION = 1;
+	static final int FRAME_HEADER_BYTES = 8 + 4;
+	static final int PARTICLE_BYTES = 4 * 4 + 4 + 2 + 1;
+
+	private final FileOutputStream mOutput;
+	private final FileChannel mChannel;
+	private ByteBuffer mBuffer = ByteBuffer.allocateDirect(4096);
+	private final IdentityHashMap<Bitmap, Integer> mSpriteIndices = new IdentityHashMap<>();
+	private final ArrayList<Bitmap> mSprites = new ArrayList<>();
+	private int mFrameCount;
+	private boolean mSnapshotPending;
+	private IOException mError;
+	private boolean mClosed;
+
+	/**
+	 * Creates a recorder writing to the given file, replacing its content.
+	 *
+	 * @param file The file.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public ParticleRecorder(@NonNull File file) throws IOException {
+		mOutput = new FileOutputStream(file);
+		mChannel = mOutput.getChannel();
+		mBuffer.putInt(MAGIC);
+		mBuffer.putInt(VERSION);
+		mBuffer.flip();
+		writeBuffer();
+	}
+
+	/**
+	 * Appends a frame with the given particles. Stops recording after a write error, which is
+	 * then thrown by {@link #close()}.
+	 */
+	void record(long milliseconds, @NonNull List<Particle> particles) {
+		snapshot(milliseconds, particles);
+		writeSnapshot();
+	}
+
+	/**
+	 * Encodes a frame with the given particles, without writing it, so that the particles do not
+	 * stay locked during the write. The frame is written by {@link #writeSnapshot()}.
+	 */
+	synchronized void snapshot(long milliseconds, @NonNull List<Particle> particles) {
+		if (mClosed || mError != null) {
+			return;
+		}
+		int count = particles.size();
+		int frameBytes = FRAME_HEADER_BYTES + count * PARTICLE_BYTES;
+		if (mBuffer.capacity() < 4 + frameBytes) {
+			mBuffer = ByteBuffer.allocateDirect(Math.max(4 + frameBytes, mBuffer.capacity() * 2));
+		}
+		mBuffer.clear();
+		mBuffer.putInt(frameBytes);
+		mBuffer.putLong(milliseconds);
+		mBuffer.putInt(count);
+		for (int i = 0; i < count; i++) {
+			Particle p = particles.get(i);
+			mBuffer.putFloat(p.mCurrentX);
+			mBuffer.putFloat(p.mCurrentY);
+			mBuffer.putFloat(p.getRotation());
+			mBuffer.putFloat(p.mScale);
+			mBuffer.putInt(p.mColor);
+			mBuffer.putShort((short) getSpriteIndex(p.mImage));
+			mBuffer.put((byte) p.mAlpha);
+		}
+		mBuffer.flip();
+		mSnapshotPending = true;
+	}
+
+	/**
+	 * Writes the frame encoded by the last {@link #snapshot(long, List)}, if any.
+	 */
+	synchronized void writeSnapshot() {
+		if (!mSnapshotPending || mClosed) {
+			return;
+		}
+		mSnapshotPending = false;
+		try {
+			writeBuffer();
+			mFrameCount++;
+		}
+		catch (IOException e) {
+			mError = e;
+		}
+	}
+
+	private int getSpriteIndex(Bitmap sprite) {
+		Integer index = mSpriteIndices.get(sprite);
+		if (index == null) {
+			index = mSprites.size();
+			mSpriteIndices.put(sprite, index);
+			mSprites.add(sprite);
+		}
+		return index;
+	}
+
+	private void writeBuffer() throws IOException {
+		while (mBuffer.hasRemaining()) {
+			mChannel.write(mBuffer);
+		}
+	}
+
+	/**
+	 * Returns the number of frames recorded so far.
+	 */
+	public synchronized int getFrameCount() {
+		return mFrameCount;
+	}
+
+	/**
+	 * Returns the sprites recorded so far, in the order of their index in the file. Pass them in
+	 * the same order to the {@link ParticleReplayer}.
+	 */
+	@NonNull
+	public synchronized List<Bitmap> getSprites() {
+		return new ArrayList<>(mSprites);
+	}
+
+	/**
+	 * Stops recording and closes the file.
+	 *
+	 * @throws IOException If writing a frame or closing the file failed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (mClosed) {
+			return;
+		}
+		mClosed = true;
+		mOutput.close();
+		if (mError != null) {
+			throw mError;
+		}
+	}
+}
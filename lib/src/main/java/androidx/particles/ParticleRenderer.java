@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Canvas;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Draws the active particles of a {@link ParticleSystem} onto the canvas of the view showing
+ * them.
+ *
+ * @see ParticleSystem#setRenderer(ParticleRenderer)
+ * @see SoftwareParticleRenderer
+ */
+public interface ParticleRenderer {
+
+	/**
+	 * The default renderer, drawing each particle with {@link Particle#draw(Canvas)}.
+	 */
+	ParticleRenderer CANVAS = new ParticleRenderer() {
+		@Override
+		public void render(@NonNull Canvas canvas, @NonNull List<Particle> particles) {
+			for (int i = 0; i < particles.size(); i++) {
+				particles.get(i).draw(canvas);
+			}
+		}
+	};
+
+	/**
+	 * Draws the particles. Called with the lock of the list held.
+	 *
+	 * @param canvas The canvas, cleared beforehand.
+	 * @param particles The active particles.
+	 */
+	void render(@NonNull Canvas canvas, @NonNull List<Particle> particles);
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+import android.view.ViewGroup;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Plays back a file written by a {@link ParticleRecorder} in a view of its own, without running
+ * any simulation, for instance to profile drawing in isolation or to compare visuals.
+ * <p>
+ * The file is memory-mapped and the offset of every frame is indexed when opening it, so any
+ * frame can be shown directly, which makes scrubbing through the recording cheap.
+ */
+public class ParticleReplayer implements Closeable {
+
+	private final ViewGroup mParentView;
+	private final ParticleField mDrawingView;
+	private final Bitmap[] mSprites;
+	private final MappedByteBuffer mBuffer;
+	private final int[] mFrameOffsets;
+	private final long[] mFrameTimes;
+	// Whether the frame times only increase, they start over when the recorded system restarts
+	private final boolean mSorted;
+	private final ArrayList<Particle> mParticles = new ArrayList<>();
+	private final ArrayList<Particle> mPool = new ArrayList<>();
+	private int mFrame = -1;
+
+	/**
+	 * Opens a recording and adds the view playing it to the given parent.
+	 *
+	 * @param file The recording.
+	 * @param parentView The parent of the view playing the recording.
+	 * @param sprites The sprites of the recording, in the order given by {@link ParticleRecorder#getSprites()}.
+	 * @throws IOException If the file cannot be read or is not a recording.
+	 */
+	@MainThread
+	public ParticleReplayer(@NonNull File file, @NonNull ViewGroup parentView,
+							@NonNull Bitmap... sprites) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			input.close();
+		}
+		if (mBuffer.remaining() < 8 || mBuffer.getInt() != ParticleRecorder.MAGIC
+				|| mBuffer.getInt() != ParticleRecorder.VERSION) {
+			throw new IOException("Not a particle recording " + file);
+		}
+		// Index the frames, ignoring a last frame cut short by an interrupted recording
+		int count = 0;
+		int[] offsets = new int[64];
+		long[] times = new long[64];
+		int offset = mBuffer.position();
+		while (offset + 4 <= mBuffer.limit()) {
+			int frameBytes = mBuffer.getInt(offset);
+			if (frameBytes < ParticleRecorder.FRAME_HEADER_BYTES || offset + 4 + frameBytes > mBuffer.limit()) {
+				break;
+			}
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+				times = Arrays.copyOf(times, count * 2);
+			}
+			offsets[count] = offset + 4;
+			times[count] = mBuffer.getLong(offset + 4);
+			count++;
+			offset += 4 + frameBytes;
+		}
+		mFrameOffsets = Arrays.copyOf(offsets, count);
+		mFrameTimes = Arrays.copyOf(times, count);
+		boolean sorted = true;
+		for (int i = 1; i < count && sorted; i++) {
+			sorted = times[i] >= times[i - 1];
+		}
+		mSorted = sorted;
+
+		mSprites = sprites;
+		mParentView = parentView;
+		mDrawingView = new ParticleField(parentView.getContext());
+		mDrawingView.setParticles(mParticles);
+		parentView.addView(mDrawingView);
+	}
+
+	public int getFrameCount() {
+		return mFrameOffsets.length;
+	}
+
+	/**
+	 * Returns the time of the particle system when the given frame was recorded, in milliseconds.
+	 */
+	public long getFrameTime(int frame) {
+		return mFrameTimes[frame];
+	}
+
+	/**
+	 * Returns the index of the frame shown, or {@code -1} if none has been shown yet.
+	 */
+	public int getFrame() {
+		return mFrame;
+	}
+
+	/**
+	 * Shows the given frame.
+	 *
+	 * @param frame The index of the frame.
+	 */
+	@MainThread
+	public void showFrame(@IntRange(from=0) int frame) {
+		int offset = mFrameOffsets[frame] + 8;
+		int count = mBuffer.getInt(offset);
+		offset += 4;
+		synchronized (mParticles) {
+			mPool.addAll(mParticles);
+			mParticles.clear();
+			for (int i = 0; i < count; i++) {
+				Particle p = mPool.isEmpty() ? new Particle() : mPool.remove(mPool.size() - 1);
+				p.restore(mSprites[mBuffer.getShort(offset + 20)],
+						mBuffer.getFloat(offset), mBuffer.getFloat(offset + 4),
+						mBuffer.getFloat(offset + 8), mBuffer.getFloat(offset + 12),
+						mBuffer.get(offset + 22) & 0xFF, mBuffer.getInt(offset + 16));
+				mParticles.add(p);
+				offset += ParticleRecorder.PARTICLE_BYTES;
+			}
+		}
+		mFrame = frame;
+		mDrawingView.invalidate();
+	}
+
+	/**
+	 * Shows the last frame recorded at or before the given time, or the first frame if the time
+	 * is before all of them. When the particle system was restarted during the recording, its
+	 * time started over and the frame is taken from the last run reaching the given time.
+	 *
+	 * @param milliseconds The time of the particle system.
+	 */
+	@MainThread
+	public void seekTo(long milliseconds) {
+		if (mFrameTimes.length == 0) {
+			return;
+		}
+		int index;
+		if (mSorted) {
+			index = Arrays.binarySearch(mFrameTimes, milliseconds);
+			if (index < 0) {
+				// The frame before the insertion point
+				index = Math.max(0, -index - 2);
+			}
+		}
+		else {
+			index = findFrame(milliseconds);
+		}
+		showFrame(index);
+	}
+
+	// The latest frame recorded at or before the given time, looking at every frame
+	private int findFrame(long milliseconds) {
+		int index = 0;
+		long time = Long.MIN_VALUE;
+		for (int i = 0; i < mFrameTimes.length; i++) {
+			if (mFrameTimes[i] <= milliseconds && mFrameTimes[i] >= time) {
+				index = i;
+				time = mFrameTimes[i];
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Removes the view playing the recording.
+	 */
+	@MainThread
+	@Override
+	public void close() {
+		mParentView.removeView(mDrawingView);
+	}
+}
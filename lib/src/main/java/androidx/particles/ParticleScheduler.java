@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Updates several continuously emitting {@link ParticleSystem}s from a single timer, within a
+ * CPU budget per tick.
+ * <p>
+ * Particle systems are updated in priority order. Once the budget of a tick is spent, the
+ * remaining systems are deferred to the next tick, where they catch up with a larger time step.
+ * Systems with {@link ParticleBudget#PRIORITY_HIGH high priority} are never deferred, and no system
+ * is deferred more than {@value #MAX_CONSECUTIVE_DEFERRALS} ticks in a row.
+ *
+ * @see ParticleSystem#setScheduler(ParticleScheduler)
+ */
+public class ParticleScheduler {
+
+	/**
+	 * The maximum number of consecutive ticks a particle system can be deferred.
+	 */
+	public static final int MAX_CONSECUTIVE_DEFERRALS = 4;
+
+	private final long mFrameBudgetNanos;
+	private final boolean mOffline;
+	private final ArrayList<Entry> mEntries = new ArrayList<>();
+	private Timer mTimer;
+	private OnDeferralListener mOnDeferralListener;
+	private long mDeferralCount;
+
+	/**
+	 * Listener notified when a particle system is deferred.
+	 */
+	public interface OnDeferralListener {
+
+		/**
+		 * Called on the scheduler thread when a particle system has been deferred.
+		 *
+		 * @param system The deferred particle system.
+		 * @param consecutiveDeferrals How many ticks in a row the particle system has been deferred.
+		 */
+		void onDeferral(@NonNull ParticleSystem system, int consecutiveDeferrals);
+	}
+
+	private static class Entry {
+
+		final WeakReference<ParticleSystem> mSystem;
+		final int mPriority;
+		int mConsecutiveDeferrals;
+
+		Entry(ParticleSystem system) {
+			mSystem = new WeakReference<>(system);
+			mPriority = system.getPriority();
+		}
+	}
+
+	private static class SchedulerTimerTask extends TimerTask {
+
+		private final WeakReference<ParticleScheduler> mScheduler;
+
+		SchedulerTimerTask(ParticleScheduler scheduler) {
+			mScheduler = new WeakReference<>(scheduler);
+		}
+
+		@Override
+		public void run() {
+			ParticleScheduler scheduler = mScheduler.get();
+			if (scheduler != null) {
+				scheduler.onTick();
+			}
+		}
+	}
+
+	/**
+	 * Creates a scheduler.
+	 *
+	 * @param frameBudgetMillis The time per tick that may be spent updating particle systems.
+	 */
+	public ParticleScheduler(float frameBudgetMillis) {
+		this(frameBudgetMillis, false);
+	}
+
+	// An offline scheduler has no timer and is ticked by calling onTick()
+	ParticleScheduler(float frameBudgetMillis, boolean offline) {
+		mFrameBudgetNanos = (long) (frameBudgetMillis * 1_000_000);
+		mOffline = offline;
+	}
+
+	public void setOnDeferralListener(@Nullable OnDeferralListener listener) {
+		mOnDeferralListener = listener;
+	}
+
+	/**
+	 * Returns how many times a particle system has been deferred since the scheduler was created.
+	 */
+	public long getDeferralCount() {
+		synchronized (mEntries) {
+			return mDeferralCount;
+		}
+	}
+
+	void register(@NonNull ParticleSystem system) {
+		synchronized (mEntries) {
+			// Keep the entries sorted by descending priority, in registration order otherwise
+			Entry entry = new Entry(system);
+			int index = mEntries.size();
+			while (index > 0 && mEntries.get(index - 1).mPriority < entry.mPriority) {
+				index--;
+			}
+			mEntries.add(index, entry);
+			if (mTimer == null && !mOffline) {
+				mTimer = new Timer();
+				long interval = ParticleSystem.getTimerTaskInterval();
+				mTimer.schedule(new SchedulerTimerTask(this), 0, interval);
+			}
+		}
+	}
+
+	void unregister(@NonNull ParticleSystem system) {
+		synchronized (mEntries) {
+			for (int i = 0; i < mEntries.size(); i++) {
+				if (mEntries.get(i).mSystem.get() == system) {
+					mEntries.remove(i);
+					break;
+				}
+			}
+			stopIfIdle();
+		}
+	}
+
+	void onTick() {
+		long tickStart = System.nanoTime();
+		synchronized (mEntries) {
+			for (int i = 0; i < mEntries.size(); i++) {
+				Entry entry = mEntries.get(i);
+				ParticleSystem system = entry.mSystem.get();
+				if (system == null) {
+					mEntries.remove(i);
+					i--; // Needed to keep the index at the right position
+					continue;
+				}
+				boolean deferred = System.nanoTime() - tickStart > mFrameBudgetNanos
+						&& entry.mPriority < ParticleBudget.PRIORITY_HIGH
+						&& entry.mConsecutiveDeferrals < MAX_CONSECUTIVE_DEFERRALS;
+				if (deferred) {
+					entry.mConsecutiveDeferrals++;
+					mDeferralCount++;
+					if (mOnDeferralListener != null) {
+						mOnDeferralListener.onDeferral(system, entry.mConsecutiveDeferrals);
+					}
+				}
+				else {
+					entry.mConsecutiveDeferrals = 0;
+				}
+				system.onTimerTick(deferred);
+			}
+			stopIfIdle();
+		}
+	}
+
+	private void stopIfIdle() {
+		if (mEntries.isEmpty() && mTimer != null) {
+			mTimer.cancel();
+			mTimer = null;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Draws the particles of a single {@link ParticleSystem} into a {@link TextureView} from the
+ * thread updating them, so that drawing does not use the frame time of the UI thread.
+ * <p>
+ * The surface is handed over between the UI thread, which creates and destroys it, and the
+ * updating thread, which borrows it while drawing, through an atomic reference without locking.
+ *
+ * @see ParticleSystem#setSurfaceRendering(boolean)
+ */
+final class ParticleSurface extends TextureView implements TextureView.SurfaceTextureListener {
+
+	// Marks a surface destroyed while the updating thread was drawing into it
+	private static final Target DESTROYED = new Target(null, null);
+
+	// Holds the surface while nobody draws into it, null while borrowed for drawing
+	private final AtomicReference<Target> mTarget = new AtomicReference<>();
+	private final ArrayList<ParticleField.OnShownChangeListener> mOnShownChangeListeners = new ArrayList<>();
+
+	private static final class Target {
+
+		final Surface mSurface;
+		final SurfaceTexture mSurfaceTexture;
+
+		Target(Surface surface, SurfaceTexture surfaceTexture) {
+			mSurface = surface;
+			mSurfaceTexture = surfaceTexture;
+		}
+
+		void release() {
+			mSurface.release();
+			mSurfaceTexture.release();
+		}
+	}
+
+	ParticleSurface(@NonNull Context context) {
+		super(context);
+		setOpaque(false);
+		setSurfaceTextureListener(this);
+	}
+
+	/**
+	 * Draws the particles if the surface is available, otherwise drops the frame. Must always be
+	 * called from the same thread.
+	 */
+	void render(@NonNull ArrayList<Particle> particles, @NonNull ParticleRenderer renderer,
+				@Nullable AdaptiveQualityController controller) {
+		Target target = mTarget.get();
+		if (target == null || target == DESTROYED || !mTarget.compareAndSet(target, null)) {
+			return;
+		}
+		long drawStart = controller != null ? System.nanoTime() : 0;
+		try {
+			// Software canvases cannot draw hardware sprites
+			Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+					? target.mSurface.lockHardwareCanvas()
+					: target.mSurface.lockCanvas(null);
+			try {
+				canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+				synchronized (particles) {
+					renderer.render(canvas, particles);
+				}
+			}
+			finally {
+				target.mSurface.unlockCanvasAndPost(canvas);
+			}
+		}
+		catch (Surface.OutOfResourcesException | IllegalArgumentException e) {
+			// The surface is being destroyed, skip the frame
+		}
+		finally {
+			// Give the surface back, unless it has been destroyed or replaced meanwhile
+			if (!mTarget.compareAndSet(null, target)) {
+				target.release();
+			}
+		}
+		if (controller != null) {
+			controller.addDrawTime(System.nanoTime() - drawStart);
+		}
+	}
+
+	@Override
+	public void onSurfaceTextureAvailable(@NonNull SurfaceTexture surface, int width, int height) {
+		mTarget.set(new Target(new Surface(surface), surface));
+	}
+
+	@Override
+	public void onSurfaceTextureSizeChanged(@NonNull SurfaceTexture surface, int width, int height) {}
+
+	@Override
+	public boolean onSurfaceTextureDestroyed(@NonNull SurfaceTexture surface) {
+		Target target = mTarget.getAndSet(DESTROYED);
+		if (target == null) {
+			// Borrowed for drawing, the updating thread releases it when done
+			return false;
+		}
+		if (target != DESTROYED) {
+			target.mSurface.release();
+		}
+		return true;
+	}
+
+	@Override
+	public void onSurfaceTextureUpdated(@NonNull SurfaceTexture surface) {}
+
+	void addOnShownChangeListener(@NonNull ParticleField.OnShownChangeListener listener) {
+		mOnShownChangeListeners.add(listener);
+	}
+
+	void removeOnShownChangeListener(@NonNull ParticleField.OnShownChangeListener listener) {
+		mOnShownChangeListeners.remove(listener);
+	}
+
+	boolean isShownOnScreen() {
+		return ParticleField.isShownOnScreen(this);
+	}
+
+	@Override
+	protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+		ParticleField.dispatchShownChange(this, mOnShownChangeListeners);
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		ParticleField.dispatchShownChange(this, mOnShownChangeListeners);
+	}
+}
@@ -21,6 +21,7 @@ import android.animation.Animator.AnimatorListener;
 import android.animation.ValueAnimator;
 import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.drawable.AnimationDrawable;
@@ -34,13 +35,23 @@ import android.view.ViewGroup;
 import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.Dimension;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.IdRes;
 import androidx.annotation.IntRange;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.Px;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.particles.initializers.AccelerationInitializer;
+import androidx.particles.initializers.BatchInitializerAdapter;
+import androidx.particles.initializers.BatchParticleInitializer;
+import androidx.particles.initializers.ColorInitializer;
 import androidx.particles.initializers.ParticleInitializer;
 import androidx.particles.initializers.RotationInitializer;
 import androidx.particles.initializers.RotationSpeedInitializer;
@@ -48,10 +59,19 @@ import androidx.particles.initializers.ScaleInitializer;
 import androidx.particles.initializers.SpeedByComponentsInitializer;
 import androidx.particles.initializers.SpeedModuleAndRangeInitializer;
 import androidx.particles.modifiers.AlphaModifier;
+import androidx.particles.modifiers.AttractorModifier;
+import androidx.particles.modifiers.BatchModifierAdapter;
+import androidx.particles.modifiers.BatchParticleModifier;
+import androidx.particles.modifiers.FlowFieldModifier;
+import androidx.particles.modifiers.ParticleBatch;
 import androidx.particles.modifiers.ParticleModifier;
+import androidx.particles.modifiers.SpatialModifier;
+import androidx.particles.modifiers.TurbulenceModifier;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.Timer;
@@ -66,33 +86,112 @@ import java.util.TimerTask;
  * A {@code ParticleSystem} can either be fired once by calling {@link #oneShot(View, int)},
  * emit particles continuously until {@link #stopEmitting()} or {@link #cancel()} is called,
  * or emit particles for a certain amount of time by calling {@link #emit(View, int, int)}.
+ * <p>
+ * A {@code ParticleSystem} can be started again once finished, or {@link #reset()} to start it
+ * over, reusing its configuration and particles.
  */
 public class ParticleSystem {
 
 	private static long TIMER_TASK_INTERVAL = 33; // Default 30fps
+	private static final long DEFAULT_MAX_TICK_DELTA = 100;
+	private static final long NO_TICK = -1;
+	// Stateless, so shared by every start
+	private static final Interpolator LINEAR = new LinearInterpolator();
+
+	/**
+	 * Keeps the sprites as they were given.
+	 */
+	public static final int SPRITE_FORMAT_ORIGINAL = 0;
+	/**
+	 * Keeps only the alpha channel of the sprites, a quarter of the memory of ARGB_8888. Each
+	 * particle is drawn in its color, see {@link #setColors(int...)}.
+	 */
+	public static final int SPRITE_FORMAT_ALPHA_MASK = 1;
+	/**
+	 * Moves the sprites to graphics memory on API 26 and above, where they take no heap and are
+	 * not uploaded again when drawn. Keeps them as they were given on older versions. Requires
+	 * hardware accelerated drawing, see {@link #setSpriteFormat(int)}.
+	 */
+	public static final int SPRITE_FORMAT_HARDWARE = 2;
 	private ViewGroup mParentView;
 	private int mMaxParticles;
 	private Random mRandom;
 
 	private ParticleField mDrawingView;
+	private ParticleSurface mSurfaceView;
+	private boolean mSurfaceRendering;
+	private boolean mMipmapping;
+	private ParticleRenderer mRenderer = ParticleRenderer.CANVAS;
+	private ParticleCompositor mCompositor;
+	private boolean mComposited;
+	private int mCompositorLayer;
+	private AdaptiveQualityController mQualityController;
+	private float mEmissionCredit;
+	private int mTickCount;
+	private ParticleBudget mBudget = ParticleBudget.getDefault();
+	private int mPriority = ParticleBudget.PRIORITY_NORMAL;
+	private ParticleBudget.Allocation mBudgetAllocation;
+	private ParticleScheduler mScheduler;
+	private boolean mScheduled;
 
 	private ArrayList<Particle> mParticles;
+	// What the particles of the pool are created from, when first started or after trimming
+	private Bitmap[] mSprites;
+	private AnimationDrawable mAnimation;
+	private ParticlePool mPool;
+	private boolean mReleased;
+	private volatile boolean mOffline;
 	private final ArrayList<Particle> mActiveParticles = new ArrayList<>();
 	private long mTimeToLive;
 	private long mCurrentTime = 0;
+	private long mStartTime = 0;
 
 	private float mParticlesPerMillisecond;
 	private int mActivatedParticles;
 	private long mEmittingTime;
 
 	private List<ParticleModifier> mModifiers;
-	private List<ParticleInitializer> mInitializers;
+	// The modifiers are applied by the particle system to all the particles at once
+	private final List<BatchParticleModifier> mBatchModifiers = new ArrayList<>();
+	private final ParticleBatch mBatch = new ParticleBatch();
+	private final List<SpatialModifier> mSpatialModifiers = new ArrayList<>();
+	private SpatialGrid mSpatialGrid;
+	private ParticleCollider mCollider;
+	private ParticleRecorder mRecorder;
+	private BakedEffect mBakedEffect;
+	private boolean mBakedMirror;
+	private int mBakedRotation;
+	private int mTimestep;
+	private ParticleClock mClock = ParticleClock.SYSTEM;
+	private long mMaxTickDelta = DEFAULT_MAX_TICK_DELTA;
+	private long mLastTickTime = NO_TICK;
+	private long mLastUpdateTime;
+	private List<BatchParticleInitializer> mInitializers;
+	private Particle[] mSpawnBatch = new Particle[0];
 	private ValueAnimator mAnimator;
 	private Timer mTimer;
-    private final ParticleTimerTask mTimerTask = new ParticleTimerTask(this);
+	// Kept between runs so that restarting does not create the views again
+	private ParticleField mIdleDrawingView;
+	private ParticleSurface mIdleSurfaceView;
+    private ParticleTimerTask mTimerTask;
+	// Time-limited animations driven by the timer when rendering on a surface
+	private Interpolator mInterpolator;
+	private long mAnimationTime;
+
+	// Ticking is suspended while the drawing view is detached or hidden, or the host is stopped
+	private final HostObserver mHostObserver = new HostObserver();
+	private LifecycleOwner mLifecycleOwner;
+	private boolean mDetached;
+	private boolean mHidden;
+	private boolean mStopped;
+	private boolean mPaused;
+	// Animators cannot be paused before KitKat, they are stopped and restarted from their play time
+	private boolean mAnimatorStopped;
+	private long mAnimatorPlayTime;
 
 	private float mDpToPxScale;
 	private int[] mParentLocation;
+	private final int[] mEmitterLocation = new int[2];
 
 	@Px
 	private int mEmitterXMin;
@@ -114,13 +213,43 @@ public class ParticleSystem {
         @Override
         public void run() {
             if(mPs.get() != null) {
-                ParticleSystem ps = mPs.get();
-                ps.onUpdate(ps.mCurrentTime);
-                ps.mCurrentTime += TIMER_TASK_INTERVAL;
+                mPs.get().onTimerTick(false);
             }
         }
     }
 
+	private class HostObserver implements View.OnAttachStateChangeListener,
+			ParticleField.OnShownChangeListener, LifecycleEventObserver {
+
+		@Override
+		public void onViewAttachedToWindow(View v) {
+			mDetached = false;
+			updatePaused();
+		}
+
+		@Override
+		public void onViewDetachedFromWindow(View v) {
+			mDetached = true;
+			updatePaused();
+		}
+
+		@Override
+		public void onShownChange(boolean shown) {
+			mHidden = !shown;
+			updatePaused();
+		}
+
+		@Override
+		public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+			if (event == Lifecycle.Event.ON_DESTROY) {
+				cancel();
+				return;
+			}
+			mStopped = !source.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+			updatePaused();
+		}
+	}
+
 	private ParticleSystem(@NonNull ViewGroup parentView, int maxParticles, long timeToLive) {
 		mRandom = new Random();
 		mParentLocation = new int[2];
@@ -153,10 +282,7 @@ public class ParticleSystem {
 		this(parentView, maxParticles, timeToLive);
 
 		if (drawable instanceof AnimationDrawable) {
-			AnimationDrawable animation = (AnimationDrawable) drawable;
-			for (int i=0; i<mMaxParticles; i++) {
-				mParticles.add (new AnimatedParticle (animation));
-			}
+			mAnimation = (AnimationDrawable) drawable;
 		}
 		else {
 			Bitmap bitmap = null;
@@ -170,9 +296,7 @@ public class ParticleSystem {
 				drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
 				drawable.draw(canvas);
 			}
-			for (int i=0; i<mMaxParticles; i++) {
-				mParticles.add (new Particle (bitmap));
-			}
+			mSprites = new Bitmap[] {bitmap};
 		}
 	}
 
@@ -267,9 +391,7 @@ public class ParticleSystem {
 	public ParticleSystem(@NonNull Activity a, int maxParticles, @NonNull Bitmap bitmap,
 						  long timeToLive, @IdRes int parentViewId) {
 		this((ViewGroup) a.findViewById(parentViewId), maxParticles, timeToLive);
-		for (int i=0; i<mMaxParticles; i++) {
-			mParticles.add(new Particle(bitmap));
-		}
+		mSprites = new Bitmap[] {bitmap};
 	}
 
 	/**
@@ -291,9 +413,7 @@ public class ParticleSystem {
 			throw new IllegalArgumentException("Bitmap array can not be empty");
 		}
 
-		for (int i=0; i<mMaxParticles; i++) {
-			mParticles.add(new Particle(bitmaps[mRandom.nextInt(bitmaps.length)]));
-		}
+		mSprites = bitmaps.clone();
 	}
 
 	/**
@@ -331,9 +451,7 @@ public class ParticleSystem {
 			throw new IllegalArgumentException("Bitmap array can not be empty");
 		}
 
-		for (int i=0; i<mMaxParticles; i++) {
-			mParticles.add(new Particle(bitmaps[mRandom.nextInt(bitmaps.length)]));
-		}
+		mSprites = bitmaps.clone();
 	}
 
     /**
@@ -362,12 +480,69 @@ public class ParticleSystem {
 						  @NonNull AnimationDrawable animation, long timeToLive,
 						  @IdRes int parentViewId) {
 		this((ViewGroup) a.findViewById(parentViewId), maxParticles, timeToLive);
-		// Create the particles
-		for (int i=0; i<mMaxParticles; i++) {
-			mParticles.add(new AnimatedParticle(animation));
+		mAnimation = animation;
+	}
+
+	// Creates the particles missing from the pool
+	private void fillPool() {
+		for (int i = mParticles.size() + mActiveParticles.size(); i < mMaxParticles; i++) {
+			mParticles.add(createParticle());
+		}
+	}
+
+	private Particle createParticle() {
+		if (mAnimation != null) {
+			return mPool != null ? mPool.acquire(mAnimation) : new AnimatedParticle(mAnimation);
+		}
+		Bitmap sprite = mSprites.length == 1 ? mSprites[0] : mSprites[mRandom.nextInt(mSprites.length)];
+		return mPool != null ? mPool.acquire(sprite) : new Particle(sprite);
+	}
+
+	// Stops the previous run if it is still going and rewinds its state, then creates or checks
+	// out the particles, so that every start plays the effect from the beginning
+	private void rewind() {
+		if (mReleased) {
+			throw new IllegalStateException("The particle system was released");
+		}
+		if (!isIdle()) {
+			cancel();
+		}
+		mCurrentTime = mStartTime;
+		mActivatedParticles = 0;
+		mLastUpdateTime = 0;
+		mLastTickTime = NO_TICK;
+		mEmissionCredit = 0;
+		mTickCount = 0;
+		fillPool();
+	}
+
+	// Returns the particles to the shared pool once finished
+	private void returnParticles() {
+		if (mPool != null && !mParticles.isEmpty()) {
+			mPool.release(mParticles);
+			mParticles.clear();
 		}
 	}
 
+	/**
+	 * Checks the particles out of a pool shared with other particle systems each time the
+	 * particle system is started, and returns them when it finishes, instead of keeping particles
+	 * of its own. Particle systems created for every effect with the same sprites then reuse
+	 * the same particles.
+	 *
+	 * @param pool The pool, usually {@link ParticlePool#getShared()}, or {@code null} to keep
+	 *             the particles in the particle system.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setParticlePool(@Nullable ParticlePool pool) {
+		mPool = pool;
+		if (isIdle()) {
+			returnParticles();
+		}
+		return this;
+	}
+
 	/**
 	 * Sets the frames per second of <em>ALL</em> ParticleSystems.
 	 *
@@ -377,6 +552,10 @@ public class ParticleSystem {
 		TIMER_TASK_INTERVAL = Math.round(1000 / fps);
 	}
 
+	static long getTimerTaskInterval() {
+		return TIMER_TASK_INTERVAL;
+	}
+
 	// TODO Make protected/private?
 	@Px
 	public float dpToPx(@Dimension(unit=Dimension.DP) float dp) {
@@ -392,6 +571,10 @@ public class ParticleSystem {
 	@NonNull
 	public ParticleSystem addModifier(@NonNull ParticleModifier modifier) {
 		mModifiers.add(modifier);
+		mBatchModifiers.add(BatchModifierAdapter.adapt(modifier));
+		if (modifier instanceof SpatialModifier) {
+			mSpatialModifiers.add((SpatialModifier) modifier);
+		}
 		return this;
 	}
 
@@ -483,6 +666,184 @@ public class ParticleSystem {
 		return this;
 	}
 
+	/**
+	 * Initializes the color of emitted particles, picked at random among the given colors. Alpha
+	 * mask sprites are drawn in the color, other sprites are multiplied by it, so a single white
+	 * or grayscale sprite can replace several colored copies.
+	 *
+	 * @param colors The colors to choose from.
+	 * @return This.
+	 * @throws IllegalArgumentException If there is no color.
+	 * @see #setSpriteFormat(int)
+	 */
+	@NonNull
+	public ParticleSystem setColors(@NonNull @ColorInt int... colors) {
+		mInitializers.add(new ColorInitializer(colors));
+		return this;
+	}
+
+	/**
+	 * Converts the sprites of the particles to a more compact format. Animated particles are
+	 * left unchanged. Use {@link #getSpriteByteCount()} before and after to measure the savings.
+	 * <p>
+	 * Hardware sprites can only be drawn on hardware accelerated canvases. Surface rendering
+	 * draws them with a hardware canvas, and a {@link SoftwareParticleRenderer} or a
+	 * {@link SpriteSheetBaker} reads them through a software copy. A view whose window is not
+	 * hardware accelerated, or a custom renderer drawing on a software canvas, cannot draw them.
+	 *
+	 * @param format One of {@link #SPRITE_FORMAT_ORIGINAL}, {@link #SPRITE_FORMAT_ALPHA_MASK} or
+	 *               {@link #SPRITE_FORMAT_HARDWARE}.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setSpriteFormat(@IntRange(from=SPRITE_FORMAT_ORIGINAL, to=SPRITE_FORMAT_HARDWARE) int format) {
+		if (format == SPRITE_FORMAT_ORIGINAL
+				|| (format == SPRITE_FORMAT_HARDWARE && Build.VERSION.SDK_INT < Build.VERSION_CODES.O)) {
+			return this;
+		}
+		// Convert each distinct sprite once
+		IdentityHashMap<Bitmap, Bitmap> converted = new IdentityHashMap<>();
+		for (int i = 0; i < mParticles.size(); i++) {
+			Particle particle = mParticles.get(i);
+			if (particle instanceof AnimatedParticle) {
+				continue;
+			}
+			particle.mImage = convertSprite(particle.mImage, format, converted);
+		}
+		// The particles created again after trimming the pool get the converted sprites too
+		if (mSprites != null) {
+			for (int i = 0; i < mSprites.length; i++) {
+				mSprites[i] = convertSprite(mSprites[i], format, converted);
+			}
+		}
+		return this;
+	}
+
+	private static Bitmap convertSprite(Bitmap sprite, int format, IdentityHashMap<Bitmap, Bitmap> converted) {
+		Bitmap convertedSprite = converted.get(sprite);
+		if (convertedSprite == null) {
+			convertedSprite = format == SPRITE_FORMAT_ALPHA_MASK
+					? sprite.extractAlpha()
+					: sprite.copy(Bitmap.Config.HARDWARE, false);
+			converted.put(sprite, convertedSprite);
+		}
+		return convertedSprite;
+	}
+
+	/**
+	 * Returns the heap memory used by the pixels of the distinct sprites of the particle system.
+	 * Sprites in graphics memory are not counted. Software sprites are also uploaded to the GPU with
+	 * the same size when first drawn.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getSpriteByteCount() {
+		IdentityHashMap<Bitmap, Boolean> counted = new IdentityHashMap<>();
+		long byteCount = countSpriteBytes(mParticles, counted);
+		synchronized (mActiveParticles) {
+			byteCount += countSpriteBytes(mActiveParticles, counted);
+		}
+		if (mSprites != null) {
+			for (Bitmap sprite : mSprites) {
+				byteCount += countSpriteBytes(sprite, counted);
+			}
+		}
+		return byteCount;
+	}
+
+	private static long countSpriteBytes(List<Particle> particles, IdentityHashMap<Bitmap, Boolean> counted) {
+		long byteCount = 0;
+		for (int i = 0; i < particles.size(); i++) {
+			byteCount += countSpriteBytes(particles.get(i).mImage, counted);
+		}
+		return byteCount;
+	}
+
+	private static long countSpriteBytes(Bitmap sprite, IdentityHashMap<Bitmap, Boolean> counted) {
+		if (counted.put(sprite, Boolean.TRUE) == null && !isHardware(sprite)) {
+			return sprite.getByteCount();
+		}
+		return 0;
+	}
+
+	/**
+	 * Releases the memory that the particle system can do without while it is not running,
+	 * depending on the level given to {@link ComponentCallbacks2#onTrimMemory(int)}. From
+	 * {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW}, drops the references of the particles
+	 * to reduced sprites and the caches of the renderer. From
+	 * {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}, also drops the pool of particles, which
+	 * is created again the next time the particle system is started. Running particle systems are
+	 * left untouched.
+	 * <p>
+	 * Particle systems that were started are trimmed automatically by the
+	 * {@link ParticleMemoryManager}.
+	 *
+	 * @param level The trim level.
+	 * @return The number of bytes of bitmap memory no longer referenced by the particle system:
+	 * the caches of the renderer, and the reduced sprites dropped by the particles that are not
+	 * in the cache shared by all particle systems anymore. Dropping the pool of particles
+	 * releases no bitmap memory by itself, as the sprites are kept.
+	 */
+	@MainThread
+	public long trimMemory(int level) {
+		if (mReleased || !isIdle() || level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			return 0;
+		}
+		long byteCount = 0;
+		if (mRenderer instanceof SoftwareParticleRenderer) {
+			byteCount += ((SoftwareParticleRenderer) mRenderer).trimMemory();
+		}
+		// The particles of a sprite share its levels, which are counted once
+		IdentityHashMap<Bitmap[], Boolean> levels = new IdentityHashMap<>();
+		for (int i = 0; i < mParticles.size(); i++) {
+			Bitmap[] particleLevels = mParticles.get(i).trimMemory();
+			if (particleLevels != null) {
+				levels.put(particleLevels, Boolean.TRUE);
+			}
+		}
+		byteCount += MipmapCache.getUncachedByteCount(levels.keySet());
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+			mParticles.clear();
+			mParticles.trimToSize();
+			mSpawnBatch = new Particle[0];
+			mSpatialGrid = null;
+			mIdleDrawingView = null;
+			mIdleSurfaceView = null;
+		}
+		return byteCount;
+	}
+
+	/**
+	 * Cancels the particle system and drops its particles, sprites and caches for good. The
+	 * particle system cannot be started anymore.
+	 *
+	 * @return The number of bytes of bitmap memory no longer referenced by the particle system.
+	 */
+	@MainThread
+	public long release() {
+		if (mReleased) {
+			return 0;
+		}
+		cancel();
+		long byteCount = getSpriteByteCount() + trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+		mSprites = null;
+		mAnimation = null;
+		mBakedEffect = null;
+		mAnimator = null;
+		mReleased = true;
+		ParticleMemoryManager.getInstance().unregister(this);
+		return byteCount;
+	}
+
+	// Whether the particle system is neither running nor being baked
+	private boolean isIdle() {
+		return mDrawingView == null && mSurfaceView == null && mCompositor == null && !mOffline;
+	}
+
+	private static boolean isHardware(Bitmap sprite) {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && sprite.getConfig() == Bitmap.Config.HARDWARE;
+	}
+
     /**
      * Initializes the rotation speed of emitted particles. Rotation speed is measured in degrees
      * per second.
@@ -543,7 +904,7 @@ public class ParticleSystem {
 	public ParticleSystem addInitializer(@NonNull ParticleInitializer initializer) {
 		// TODO Make null-checks consistent for both addInitializer() and addModifier()
 		if (initializer != null) {
-			mInitializers.add(initializer);
+			mInitializers.add(BatchInitializerAdapter.adapt(initializer));
 		}
 		return this;
 	}
@@ -581,6 +942,282 @@ public class ParticleSystem {
 		return this;
 	}
 
+	/**
+	 * Draws this particle system into a view shared by all composited particle systems of the same
+	 * parent view group, instead of adding a full size view of its own. Systems are drawn in
+	 * ascending layer order. On the same layer, a system is drawn right after the last started
+	 * system using the same sprite, so that their draws can be batched, or else after the systems
+	 * already started. Needs to be called before emitting.
+	 *
+	 * @param layer The layer to draw the particles on.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setCompositorLayer(int layer) {
+		mComposited = true;
+		mCompositorLayer = layer;
+		return this;
+	}
+
+	/**
+	 * Lets the given controller adapt the emission rate, the maximum number of particles and the
+	 * tick rate of this particle system to the time it takes to update and draw. The same
+	 * controller can be shared by several particle systems.
+	 *
+	 * @param controller The quality controller.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setQualityController(@NonNull AdaptiveQualityController controller) {
+		mQualityController = controller;
+		return this;
+	}
+
+	AdaptiveQualityController getQualityController() {
+		return mQualityController;
+	}
+
+	/**
+	 * Sets the budget this particle system requests its particles from. By default, the
+	 * process-wide {@link ParticleBudget#getDefault() default budget} is used.
+	 * Needs to be called before emitting.
+	 *
+	 * @param budget The particle budget.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setBudget(@NonNull ParticleBudget budget) {
+		mBudget = budget;
+		return this;
+	}
+
+	/**
+	 * Sets the priority of this particle system when requesting particles from its budget.
+	 * The default is {@link ParticleBudget#PRIORITY_NORMAL}. Needs to be called before emitting.
+	 *
+	 * @param priority One of {@link ParticleBudget#PRIORITY_LOW}, {@link ParticleBudget#PRIORITY_NORMAL}
+	 *                 or {@link ParticleBudget#PRIORITY_HIGH}.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setPriority(@IntRange(from=ParticleBudget.PRIORITY_LOW, to=ParticleBudget.PRIORITY_HIGH) int priority) {
+		mPriority = priority;
+		return this;
+	}
+
+	int getPriority() {
+		return mPriority;
+	}
+
+	/**
+	 * Lets the given scheduler update this particle system when emitting continuously, instead of a
+	 * timer of its own. The scheduler updates its particle systems by {@link #setPriority(int) priority}
+	 * within a CPU budget per tick. Needs to be called before emitting.
+	 *
+	 * @param scheduler The scheduler.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setScheduler(@NonNull ParticleScheduler scheduler) {
+		mScheduler = scheduler;
+		return this;
+	}
+
+	/**
+	 * Makes the particles bounce inside a container and off obstacles after each update.
+	 *
+	 * @param collider The collider.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setCollider(@NonNull ParticleCollider collider) {
+		mCollider = collider;
+		return this;
+	}
+
+	/**
+	 * Computes trajectories from the initializers and modifiers of this particle system, to be
+	 * played back by particle systems instead of simulating each particle. Does not touch any
+	 * view, so it can run on a background thread once the particle system is configured.
+	 * <p>
+	 * Modifiers reacting to other particles, views or fields, such as spatial, attractor, flow
+	 * field and turbulence modifiers, are left out, as their state is shared with the running
+	 * particle system. Other modifiers are applied from the calling thread, so custom modifiers
+	 * must not depend on mutable state.
+	 *
+	 * @param trajectoryCount The number of different trajectories.
+	 * @param keyframeInterval The time between two samples of a trajectory in milliseconds.
+	 * @return The baked effect.
+	 * @see #setBakedEffect(BakedEffect, boolean, int)
+	 */
+	@NonNull
+	@WorkerThread
+	public BakedEffect bake(@IntRange(from=1) int trajectoryCount, @IntRange(from=1) int keyframeInterval) {
+		return new BakedEffect(getTexture(), trajectoryCount, keyframeInterval, mTimeToLive, mTimestep,
+				mInitializers, getBakedModifiers(), new Random(mRandom.nextLong()));
+	}
+
+	// The modifiers that only depend on the particle they are applied to
+	private List<ParticleModifier> getBakedModifiers() {
+		List<ParticleModifier> modifiers = new ArrayList<>();
+		for (int i = 0; i < mModifiers.size(); i++) {
+			ParticleModifier modifier = mModifiers.get(i);
+			if (!(modifier instanceof SpatialModifier || modifier instanceof AttractorModifier
+					|| modifier instanceof FlowFieldModifier || modifier instanceof TurbulenceModifier)) {
+				modifiers.add(modifier);
+			}
+		}
+		return modifiers;
+	}
+
+	/**
+	 * Plays back the trajectories of a baked effect instead of simulating the particles, which
+	 * then ignore the initializers and modifiers of this particle system. Each particle follows a
+	 * random trajectory of the effect, optionally mirrored and rotated at random around the emitter.
+	 *
+	 * @param effect The baked effect, or {@code null} to simulate the particles.
+	 * @param mirror Whether to mirror half of the trajectories horizontally.
+	 * @param maxRotation The maximum rotation of a trajectory in degrees, in either direction.
+	 * @return This.
+	 * @see #bake(int, int)
+	 */
+	@NonNull
+	public ParticleSystem setBakedEffect(@Nullable BakedEffect effect, boolean mirror,
+										 @IntRange(from=0, to=180) int maxRotation) {
+		mBakedEffect = effect;
+		mBakedMirror = mirror;
+		mBakedRotation = maxRotation;
+		return this;
+	}
+
+	/**
+	 * Records a snapshot of the active particles after every update, to be played back by a
+	 * {@link ParticleReplayer}.
+	 *
+	 * @param recorder The recorder, or {@code null} to stop recording. Closing it is up to the caller.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setRecorder(@Nullable ParticleRecorder recorder) {
+		mRecorder = recorder;
+		return this;
+	}
+
+	/**
+	 * Integrates the trajectory of the particles in fixed steps instead of in closed form, and
+	 * interpolates their drawn position between the last two steps. Makes the motion independent
+	 * of irregular update intervals when velocities are changed along the way, for instance by
+	 * collisions or force modifiers.
+	 *
+	 * @param milliseconds The length of a step, or {@code 0} for the closed form, which is the default.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setFixedTimestep(@IntRange(from=0) int milliseconds) {
+		mTimestep = milliseconds;
+		return this;
+	}
+
+	/**
+	 * Sets the clock measuring the time elapsed between two updates of a continuously emitting
+	 * particle system. The default is {@link ParticleClock#SYSTEM}.
+	 *
+	 * @param clock The clock.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setClock(@NonNull ParticleClock clock) {
+		mClock = clock;
+		return this;
+	}
+
+	/**
+	 * Sets the longest time a continuously emitting particle system may advance in a single update.
+	 * When updates are late, for instance after a garbage collection, the simulation catches up
+	 * with the real time up to this limit, and the rest of the time is dropped instead of
+	 * emitting a burst of particles. The default is 100 ms.
+	 *
+	 * @param milliseconds The maximum time step.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setMaxTickDelta(@IntRange(from=1) long milliseconds) {
+		mMaxTickDelta = milliseconds;
+		return this;
+	}
+
+	/**
+	 * Draws shrunk particles from reduced copies of their sprite, half, quarter and so on of its
+	 * size, picking for each particle the smallest copy still as large as the particle on screen.
+	 * Avoids the cost and aliasing of minifying large sprites. The copies are generated once per
+	 * sprite and shared with every particle system using the same bitmap.
+	 *
+	 * @param enabled Whether to use the reduced copies.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setMipmapping(boolean enabled) {
+		mMipmapping = enabled;
+		if (enabled && mSprites != null) {
+			// Generate the copies now rather than while drawing
+			for (Bitmap sprite : mSprites) {
+				MipmapCache.getLevels(sprite);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Draws the particles into a {@link android.view.TextureView} from the thread updating them
+	 * instead of a regular view drawn by the UI thread. Time-limited emissions and one shots are
+	 * then also updated by a timer instead of an animator, so that neither updating nor drawing
+	 * uses the frame time of the UI thread. Suited to long running, full screen effects.
+	 * <p>
+	 * Takes effect the next time the particle system is started. The particle system is then not
+	 * {@link #setCompositorLayer(int) composited} with others.
+	 *
+	 * @param enabled Whether to render on a surface.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setSurfaceRendering(boolean enabled) {
+		mSurfaceRendering = enabled;
+		return this;
+	}
+
+	/**
+	 * Sets how the particles are drawn to their view or surface. Takes effect the next time the
+	 * particle system is started, and is not used when the particle system is
+	 * {@link #setCompositorLayer(int) composited} with others.
+	 * <p>
+	 * A {@link SoftwareParticleRenderer} draws a framebuffer of the size it was created with at the
+	 * top left corner of the view, so it should be created with the size of the parent view.
+	 *
+	 * @param renderer The renderer, {@link ParticleRenderer#CANVAS} by default.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setRenderer(@NonNull ParticleRenderer renderer) {
+		mRenderer = renderer;
+		return this;
+	}
+
+	/**
+	 * Pauses the particle system while the given lifecycle is not at least started, and cancels it
+	 * when the lifecycle is destroyed. Takes effect the next time the particle system is started.
+	 * <p>
+	 * Regardless of the lifecycle, the particle system is also paused while its view is detached
+	 * from the window or not visible.
+	 *
+	 * @param owner The owner of the lifecycle, usually the activity or fragment showing the particles.
+	 * @return This.
+	 */
+	@NonNull
+	public ParticleSystem setLifecycleOwner(@Nullable LifecycleOwner owner) {
+		mLifecycleOwner = owner;
+		return this;
+	}
+
 	/**
 	 * Configures a starting time for the particle system to start the particle system "in the future",
 	 * with the particles already created and moving.
@@ -590,6 +1227,7 @@ public class ParticleSystem {
 	 */
 	@NonNull
 	public ParticleSystem setStartTime(long time) {
+		mStartTime = time;
 		mCurrentTime = time;
 		return this;
 	}
@@ -603,7 +1241,7 @@ public class ParticleSystem {
 	 */
 	@NonNull
 	public ParticleSystem setFadeOut(long millisecondsBeforeEnd, Interpolator interpolator) {
-		mModifiers.add(new AlphaModifier(255, 0, mTimeToLive-millisecondsBeforeEnd, mTimeToLive, interpolator));
+		addModifier(new AlphaModifier(255, 0, mTimeToLive-millisecondsBeforeEnd, mTimeToLive, interpolator));
 		return this;
 	}
 
@@ -673,16 +1311,20 @@ public class ParticleSystem {
 	}
 
 	private void startEmitting(int particlesPerSecond) {
-		mActivatedParticles = 0;
+		rewind();
+		mAnimationTime = 0;
 		mParticlesPerMillisecond = particlesPerSecond/1000f;
-		// Add a full size view to the parent view
-		mDrawingView = new ParticleField(mParentView.getContext());
-		mParentView.addView(mDrawingView);
+		attachDrawingView();
 		mEmittingTime = -1; // Meaning infinite
-		mDrawingView.setParticles (mActiveParticles);
 		updateParticlesBeforeStartTime(particlesPerSecond);
-		mTimer = new Timer();
-		mTimer.schedule(mTimerTask, 0, TIMER_TASK_INTERVAL);
+		if (mScheduler != null) {
+			mScheduled = true;
+			mScheduler.register(this);
+		}
+		else {
+			startTimer();
+		}
+		observeHost();
 	}
 
 	/**
@@ -709,16 +1351,13 @@ public class ParticleSystem {
 	}
 
 	private void startEmitting(int particlesPerSecond, int emittingTime) {
-		mActivatedParticles = 0;
+		rewind();
 		mParticlesPerMillisecond = particlesPerSecond/1000f;
-		// Add a full size view to the parent view
-		mDrawingView = new ParticleField(mParentView.getContext());
-		mParentView.addView(mDrawingView);
-
-		mDrawingView.setParticles (mActiveParticles);
+		attachDrawingView();
 		updateParticlesBeforeStartTime(particlesPerSecond);
 		mEmittingTime = emittingTime;
-		startAnimator(new LinearInterpolator(), emittingTime + mTimeToLive);
+		startAnimator(LINEAR, emittingTime + mTimeToLive);
+		observeHost();
 	}
 
 	/**
@@ -764,7 +1403,7 @@ public class ParticleSystem {
 	 * @param numParticles Number of particles launched on the one shot.
 	 */
 	public void oneShot(@NonNull View emitter, int numParticles) {
-		oneShot(emitter, numParticles, new LinearInterpolator());
+		oneShot(emitter, numParticles, LINEAR);
 	}
 
 	/**
@@ -776,29 +1415,92 @@ public class ParticleSystem {
 	 */
 	public void oneShot(@NonNull View emitter, int numParticles, Interpolator interpolator) {
 		configureEmitter(emitter, Gravity.CENTER);
-		mActivatedParticles = 0;
+		rewind();
 		mEmittingTime = mTimeToLive;
 		// We create particles based in the parameters
-		for (int i=0; i<numParticles && i<mMaxParticles; i++) {
-			activateParticle(0);
-		}
-		// Add a full size view to the parent view
-		mDrawingView = new ParticleField(mParentView.getContext());
-		mParentView.addView(mDrawingView);
-		mDrawingView.setParticles(mActiveParticles);
+		activateParticles(numParticles);
+		attachDrawingView();
 		// We start a property animator that will call us to do the update
 		// Animate from 0 to timeToLiveMax
 		startAnimator(interpolator, mTimeToLive);
+		observeHost();
+	}
+
+	private void attachDrawingView() {
+		ParticleMemoryManager.getInstance().register(mParentView.getContext(), this);
+		if (mSurfaceRendering) {
+			if (mIdleSurfaceView == null) {
+				mIdleSurfaceView = new ParticleSurface(mParentView.getContext());
+			}
+			mSurfaceView = mIdleSurfaceView;
+			mParentView.addView(mSurfaceView);
+		}
+		else if (mComposited) {
+			mCompositor = ParticleCompositor.obtain(mParentView);
+			mDrawingView = mCompositor.getDrawingView();
+			mCompositor.register(this, mCompositorLayer, getTexture(), mActiveParticles);
+		}
+		else {
+			// Add a full size view to the parent view
+			if (mIdleDrawingView == null) {
+				mIdleDrawingView = new ParticleField(mParentView.getContext());
+			}
+			mDrawingView = mIdleDrawingView;
+			mParentView.addView(mDrawingView);
+			mDrawingView.setParticles(mActiveParticles);
+			mDrawingView.setQualityController(mQualityController);
+			mDrawingView.setRenderer(mRenderer);
+		}
+	}
+
+	// The bitmap used to group systems sharing a texture in the compositor
+	private Bitmap getTexture() {
+		if (!mActiveParticles.isEmpty()) {
+			return mActiveParticles.get(0).mImage;
+		}
+		if (!mParticles.isEmpty()) {
+			return mParticles.get(0).mImage;
+		}
+		if (mAnimation != null) {
+			return ((BitmapDrawable) mAnimation.getFrame(0)).getBitmap();
+		}
+		return mSprites != null ? mSprites[0] : null;
+	}
+
+	private void startTimer() {
+		mTimer = new Timer();
+		mTimerTask = new ParticleTimerTask(this);
+		mTimer.schedule(mTimerTask, 0, TIMER_TASK_INTERVAL);
 	}
 
 	private void startAnimator(Interpolator interpolator, long animationTime) {
-		mAnimator = ValueAnimator.ofInt(0, (int) animationTime);
+		if (mSurfaceView != null) {
+			// Keep the animation off the UI thread, timed like continuous emissions
+			mInterpolator = interpolator;
+			mAnimationTime = animationTime;
+			mCurrentTime = 0;
+			mLastTickTime = NO_TICK;
+			startTimer();
+			return;
+		}
+		if (mAnimator == null) {
+			createAnimator();
+		}
+		mAnimator.setIntValues(0, (int) animationTime);
 		mAnimator.setDuration(animationTime);
+		mAnimator.setInterpolator(interpolator);
+		mAnimator.start();
+	}
+
+	private void createAnimator() {
+		mAnimator = new ValueAnimator();
 		mAnimator.addUpdateListener(new AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
                 int milliseconds = (Integer) animation.getAnimatedValue();
-                onUpdate(milliseconds);
+                if (!shouldSkipTick()) {
+                    onUpdate(milliseconds);
+                }
             }
         });
 		mAnimator.addListener(new AnimatorListener() {
@@ -810,21 +1512,23 @@ public class ParticleSystem {
 
 			@Override
 			public void onAnimationEnd(Animator animation) {
-				cleanupAnimation();
+				if (!mAnimatorStopped) {
+					cleanupAnimation();
+				}
 			}
 
 			@Override
 			public void onAnimationCancel(Animator animation) {
-				cleanupAnimation();
+				if (!mAnimatorStopped) {
+					cleanupAnimation();
+				}
 			}
         });
-		mAnimator.setInterpolator(interpolator);
-		mAnimator.start();
 	}
 
 	private void configureEmitter(@NonNull View emitter, int gravity) {
 		// It works with an emission range
-		int[] location = new int[2];
+		int[] location = mEmitterLocation;
 		emitter.getLocationInWindow(location);
 
 		// Check horizontal gravity and set range
@@ -870,19 +1574,94 @@ public class ParticleSystem {
 		return (gravity & gravityToCheck) == gravityToCheck;
 	}
 
+	// Activates up to the given number of particles at once, as allowed by the quality and budget
+	private void activateParticles(int numParticles) {
+		int count = 0;
+		int available = Math.min(mMaxParticles, mParticles.size());
+		for (int i=0; i<numParticles && i<available; i++) {
+			if (shouldActivateParticle()) {
+				count++;
+			}
+		}
+		activateParticles(count, 0);
+	}
+
 	private void activateParticle(long delay) {
-		Particle p = mParticles.remove(0);
-		p.init();
+		activateParticles(1, delay);
+	}
+
+	// Takes particles from the end of the pool and runs each initializer once over all of them.
+	// The random values are drawn initializer by initializer, then for the emitter position of
+	// each particle, so a seeded sequence spawns other particles than one particle at a time
+	private void activateParticles(int count, long delay) {
+		if (count == 0) {
+			return;
+		}
+		if (mSpawnBatch.length < count) {
+			mSpawnBatch = new Particle[Math.max(count, mSpawnBatch.length * 2)];
+		}
+		int poolSize = mParticles.size();
+		for (int i=0; i<count; i++) {
+			Particle p = mParticles.get(poolSize - count + i);
+			p.init();
+			mSpawnBatch[i] = p;
+		}
+		mParticles.subList(poolSize - count, poolSize).clear();
 		// Initialization goes before configuration, scale is required before can be configured properly
-		for (int i=0; i<mInitializers.size(); i++) {
-			mInitializers.get(i).initParticle(p, mRandom);
+		if (mBakedEffect == null) {
+			for (int i=0; i<mInitializers.size(); i++) {
+				mInitializers.get(i).initParticles(mSpawnBatch, 0, count, mRandom);
+			}
+		}
+		for (int i=0; i<count; i++) {
+			Particle p = mSpawnBatch[i];
+			mSpawnBatch[i] = null;
+			int particleX = getFromRange (mEmitterXMin, mEmitterXMax);
+			int particleY = getFromRange (mEmitterYMin, mEmitterYMax);
+			p.configure(mTimeToLive, particleX, particleY);
+			p.setTimestep(mTimestep);
+			p.setMipmapping(mMipmapping);
+			if (mBakedEffect != null) {
+				p.setBakedTrajectory(mBakedEffect, mRandom.nextInt(mBakedEffect.getTrajectoryCount()),
+						mBakedMirror && mRandom.nextBoolean(),
+						mBakedRotation > 0 ? (mRandom.nextFloat() * 2 - 1) * mBakedRotation : 0);
+			}
+			else {
+				p.setBakedTrajectory(null, 0, false, 0);
+			}
+			p.activate(delay, Collections.<ParticleModifier>emptyList());
+			mActiveParticles.add(p);
+		}
+		mActivatedParticles += count;
+	}
+
+	// Lowers the emission rate and the maximum number of particles with the quality level,
+	// then requests the particle from the budget
+	private boolean shouldActivateParticle() {
+		if (mQualityController != null) {
+			float scale = mQualityController.getQualityScale();
+			if (mActiveParticles.size() >= mMaxParticles * scale) {
+				return false;
+			}
+			mEmissionCredit += scale;
+			if (mEmissionCredit < 1f) {
+				return false;
+			}
+			mEmissionCredit -= 1f;
+		}
+		if (mBudgetAllocation == null) {
+			mBudgetAllocation = mBudget.open(this, mPriority);
+		}
+		return mBudgetAllocation.tryAcquire();
+	}
+
+	// Lowers the tick rate with the quality level
+	private boolean shouldSkipTick() {
+		if (mQualityController == null) {
+			return false;
 		}
-		int particleX = getFromRange (mEmitterXMin, mEmitterXMax);
-		int particleY = getFromRange (mEmitterYMin, mEmitterYMax);
-		p.configure(mTimeToLive, particleX, particleY);
-		p.activate(delay, mModifiers);
-		mActiveParticles.add(p);
-		mActivatedParticles++;
+		mTickCount++;
+		return mTickCount % mQualityController.getTickDivisor() != 0;
 	}
 
 	private int getFromRange(int minValue, int maxValue) {
@@ -897,31 +1676,254 @@ public class ParticleSystem {
 		}
 	}
 
+	// Advances a continuously emitting particle system by one tick. Deferred ticks only advance the
+	// time, so that the next update catches up with a larger time step.
+	void onTimerTick(boolean deferred) {
+		// Advance by the real time elapsed since the previous tick, within the catch-up limit
+		long now = mClock.uptimeMillis();
+		if (mLastTickTime != NO_TICK) {
+			mCurrentTime += Math.min(now - mLastTickTime, mMaxTickDelta);
+		}
+		mLastTickTime = now;
+		if (mAnimationTime > 0) {
+			onAnimationTick(deferred);
+			return;
+		}
+		if (!deferred && !shouldSkipTick()) {
+			onUpdate(mCurrentTime);
+			if (mSurfaceView != null) {
+				mSurfaceView.render(mActiveParticles, mRenderer, mQualityController);
+			}
+		}
+	}
+
+	// Updates a time-limited animation driven by the timer, and ends it after its last frame
+	private void onAnimationTick(boolean deferred) {
+		boolean ended = mCurrentTime >= mAnimationTime;
+		if (ended || (!deferred && !shouldSkipTick())) {
+			float fraction = Math.min(1f, (float) mCurrentTime / mAnimationTime);
+			onUpdate((long) (mInterpolator.getInterpolation(fraction) * mAnimationTime));
+			mSurfaceView.render(mActiveParticles, mRenderer, mQualityController);
+		}
+		if (ended) {
+			final TimerTask task = mTimerTask;
+			task.cancel();
+			mParentView.post(new Runnable() {
+				@Override
+				public void run() {
+					// Unless the particle system was started again meanwhile
+					if (mTimerTask == task) {
+						cancel();
+					}
+				}
+			});
+		}
+	}
+
 	private void onUpdate(long milliseconds) {
+		long updateStart = mQualityController != null ? System.nanoTime() : 0;
 		while (((mEmittingTime > 0 && milliseconds < mEmittingTime)|| mEmittingTime == -1) && // This point should emit
 				!mParticles.isEmpty() && // We have particles in the pool
 				mActivatedParticles < mParticlesPerMillisecond * milliseconds) { // and we are under the number of particles that should be launched
-			// Activate a new particle
-			activateParticle(milliseconds);
+			if (shouldActivateParticle()) {
+				// Activate a new particle at the time it should have been emitted since the last
+				// update, so that catching up does not release the particles as a single burst
+				long emissionTime = (long) (mActivatedParticles / mParticlesPerMillisecond);
+				activateParticle(Math.min(milliseconds, Math.max(mLastUpdateTime, emissionTime)));
+			}
+			else {
+				// Skip it, as if it had been launched
+				mActivatedParticles++;
+			}
+		}
+		if (!mSpatialModifiers.isEmpty()) {
+			prepareSpatialModifiers();
+		}
+		if (mCollider != null) {
+			mCollider.prepare();
 		}
+		int expiredParticles = 0;
+		ParticleRecorder recorder = mRecorder;
 		synchronized(mActiveParticles) {
 			for (int i = 0; i < mActiveParticles.size(); i++) {
-				boolean active = mActiveParticles.get(i).update(milliseconds);
-				if (!active) {
+				if (!mActiveParticles.get(i).update(milliseconds)) {
 					Particle p = mActiveParticles.remove(i);
 					i--; // Needed to keep the index at the right position
 					mParticles.add(p);
+					expiredParticles++;
+				}
+			}
+			if (!mBatchModifiers.isEmpty()) {
+				applyModifiers();
+			}
+			if (mCollider != null) {
+				for (int i = 0; i < mActiveParticles.size(); i++) {
+					mCollider.collide(mActiveParticles.get(i));
 				}
 			}
+			if (recorder != null) {
+				recorder.snapshot(milliseconds, mActiveParticles);
+			}
+		}
+		if (recorder != null) {
+			// Written outside of the lock, so that drawing does not wait for the disk
+			recorder.writeSnapshot();
+		}
+		if (expiredParticles > 0 && mBudgetAllocation != null) {
+			mBudgetAllocation.release(expiredParticles);
+		}
+		mLastUpdateTime = milliseconds;
+		if (mQualityController != null) {
+			mQualityController.addUpdateTime(System.nanoTime() - updateStart);
+		}
+		if (mDrawingView != null) {
+			mDrawingView.postInvalidate();
+		}
+	}
+
+	// Runs each modifier once over the simulated particles, laid out in arrays
+	private void applyModifiers() {
+		for (int i = 0; i < mActiveParticles.size(); i++) {
+			Particle p = mActiveParticles.get(i);
+			if (!p.isBaked()) {
+				mBatch.add(p);
+			}
+		}
+		if (mBatch.mCount == 0) {
+			return;
+		}
+		for (int i = 0; i < mBatchModifiers.size(); i++) {
+			mBatchModifiers.get(i).applyBatch(mBatch);
+		}
+		mBatch.storeAll();
+	}
+
+	private void prepareSpatialModifiers() {
+		if (mSpatialGrid == null) {
+			mSpatialGrid = new SpatialGrid();
+		}
+		float cellSize = 0;
+		for (int i = 0; i < mSpatialModifiers.size(); i++) {
+			cellSize = Math.max(cellSize, mSpatialModifiers.get(i).getRadius());
+		}
+		mSpatialGrid.rebuild(mActiveParticles, cellSize);
+		for (int i = 0; i < mSpatialModifiers.size(); i++) {
+			mSpatialModifiers.get(i).prepare(mSpatialGrid);
+		}
+	}
+
+	private void observeHost() {
+		if (mSurfaceView != null) {
+			mSurfaceView.addOnAttachStateChangeListener(mHostObserver);
+			mSurfaceView.addOnShownChangeListener(mHostObserver);
+			mDetached = mSurfaceView.getWindowToken() == null;
+			mHidden = !mSurfaceView.isShownOnScreen();
+		}
+		else {
+			mDrawingView.addOnAttachStateChangeListener(mHostObserver);
+			mDrawingView.addOnShownChangeListener(mHostObserver);
+			mDetached = mDrawingView.getWindowToken() == null;
+			mHidden = !mDrawingView.isShownOnScreen();
+		}
+		mStopped = false;
+		if (mLifecycleOwner != null) {
+			// Also receives the events leading to the current state
+			mLifecycleOwner.getLifecycle().addObserver(mHostObserver);
+		}
+		updatePaused();
+	}
+
+	private void stopObservingHost() {
+		if (mSurfaceView != null) {
+			mSurfaceView.removeOnAttachStateChangeListener(mHostObserver);
+			mSurfaceView.removeOnShownChangeListener(mHostObserver);
+		}
+		else if (mDrawingView != null) {
+			mDrawingView.removeOnAttachStateChangeListener(mHostObserver);
+			mDrawingView.removeOnShownChangeListener(mHostObserver);
+		}
+		else {
+			return;
+		}
+		if (mLifecycleOwner != null) {
+			mLifecycleOwner.getLifecycle().removeObserver(mHostObserver);
+		}
+		mPaused = false;
+	}
+
+	// Suspends or resumes ticking when the state of the host changes. Resuming restarts the clock
+	// from the current time, so the paused time is skipped instead of caught up
+	private void updatePaused() {
+		boolean paused = mDetached || mHidden || mStopped;
+		if (paused == mPaused) {
+			return;
+		}
+		mPaused = paused;
+		if (mTimer != null) {
+			if (paused) {
+				mTimerTask.cancel();
+			}
+			else {
+				mLastTickTime = NO_TICK;
+				mTimerTask = new ParticleTimerTask(this);
+				mTimer.schedule(mTimerTask, 0, TIMER_TASK_INTERVAL);
+			}
+		}
+		else if (mScheduled) {
+			if (paused) {
+				mScheduler.unregister(this);
+			}
+			else {
+				mLastTickTime = NO_TICK;
+				mScheduler.register(this);
+			}
+		}
+		else if (mAnimator != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			if (paused) {
+				mAnimator.pause();
+			}
+			else {
+				mAnimator.resume();
+			}
+		}
+		else if (mAnimator != null) {
+			if (paused) {
+				mAnimatorPlayTime = mAnimator.getCurrentPlayTime();
+				mAnimatorStopped = true;
+				mAnimator.cancel();
+			}
+			else {
+				mAnimatorStopped = false;
+				mAnimator.start();
+				mAnimator.setCurrentPlayTime(mAnimatorPlayTime);
+			}
 		}
-		mDrawingView.postInvalidate();
 	}
 
 	private void cleanupAnimation() {
-		mParentView.removeView(mDrawingView);
+		stopObservingHost();
+		if (mCompositor != null) {
+			mCompositor.unregister(this);
+			mCompositor = null;
+		}
+		else if (mSurfaceView != null) {
+			mParentView.removeView(mSurfaceView);
+		}
+		else {
+			mParentView.removeView(mDrawingView);
+		}
 		mDrawingView = null;
+		mSurfaceView = null;
 		mParentView.postInvalidate();
-		mParticles.addAll(mActiveParticles);
+		if (mBudgetAllocation != null) {
+			mBudgetAllocation.close();
+			mBudgetAllocation = null;
+		}
+		synchronized (mActiveParticles) {
+			mParticles.addAll(mActiveParticles);
+			mActiveParticles.clear();
+		}
+		returnParticles();
 	}
 
 	/**
@@ -935,22 +1937,92 @@ public class ParticleSystem {
 		mEmittingTime = mCurrentTime;
 	}
 
+	/**
+	 * Stops the particle system at once and rewinds it to its start time. It keeps its
+	 * configuration, its particles, and the views it draws into, so starting it again with any of
+	 * the emit or one shot methods sets little up again. The timer thread of a continuous emission
+	 * is stopped, so that an idle particle system does not hold a thread. Starting a particle
+	 * system that is still running resets it first.
+	 *
+	 * @see #cancel()
+	 */
+	public void reset() {
+		cancel();
+		mCurrentTime = mStartTime;
+	}
+
 	/**
 	 * Cancels the particle system and all its animations.
 	 * To stop emitting, but continue to animate existing particles until they expire,
 	 * use {@link #stopEmitting()} instead.
+	 * <p>
+	 * The particle system keeps its configuration and particles, and can be started again.
 	 *
 	 * @see #stopEmitting()
+	 * @see #reset()
 	 */
 	public void cancel() {
-		if (mAnimator != null && mAnimator.isRunning()) {
+		if (mAnimatorStopped) {
+			// Paused before KitKat, the animator is not running anymore
+			mAnimatorStopped = false;
+			cleanupAnimation();
+		}
+		else if (mAnimator != null && mAnimator.isRunning()) {
 			mAnimator.cancel();
 		}
 		if (mTimer != null) {
+			// Stops the thread of the timer, a new one is created when started again
 			mTimer.cancel();
-			mTimer.purge();
+			mTimer = null;
 			cleanupAnimation();
 		}
+		else if (mScheduled) {
+			mScheduler.unregister(this);
+			mScheduled = false;
+			cleanupAnimation();
+		}
+	}
+
+	// Starts the effect without any view or timer, to be advanced by updateOffline(). The emitter
+	// position is in the coordinates of the target the particles are drawn to. Returns the duration
+	// of the effect.
+	long startOffline(@Px int emitterX, @Px int emitterY, int numParticles, int particlesPerSecond,
+					  int emittingTime) {
+		rewind();
+		mOffline = true;
+		mEmitterXMin = emitterX;
+		mEmitterXMax = emitterX;
+		mEmitterYMin = emitterY;
+		mEmitterYMax = emitterY;
+		if (particlesPerSecond > 0) {
+			mParticlesPerMillisecond = particlesPerSecond/1000f;
+			mEmittingTime = emittingTime;
+			return emittingTime + mTimeToLive;
+		}
+		mParticlesPerMillisecond = 0;
+		mEmittingTime = mTimeToLive;
+		activateParticles(numParticles);
+		return mTimeToLive;
+	}
+
+	void updateOffline(long milliseconds) {
+		onUpdate(milliseconds);
+	}
+
+	@NonNull
+	List<Particle> getActiveParticles() {
+		return mActiveParticles;
+	}
+
+	void finishOffline() {
+		if (mBudgetAllocation != null) {
+			mBudgetAllocation.close();
+			mBudgetAllocation = null;
+		}
+		mParticles.addAll(mActiveParticles);
+		mActiveParticles.clear();
+		returnParticles();
+		mOffline = false;
 	}
 
 	private void updateParticlesBeforeStartTime(int particlesPerSecond) {
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * A renderer rasterizing particles in plain Java into an ARGB framebuffer held by an
+ * {@link IntBuffer}, without going through a {@link Canvas}.
+ * <p>
+ * Pixels are stored as premultiplied {@code 0xAARRGGBB} ints, one per pixel, row after row.
+ * Sprites are rotated, scaled and tinted like {@link Particle#draw(Canvas)} does, sampled at the
+ * nearest pixel and blended with the source-over operator. Each row of a sprite is bounded to
+ * the pixels it covers before being filled, so the cost follows the area drawn.
+ * <p>
+ * Rasterizing only reads the sprite pixels, so framebuffers can be rendered headless, for
+ * instance to compare with golden images or to measure the throughput of an effect. Used as the
+ * renderer of a particle system, the framebuffer is copied to the canvas after each frame, which
+ * is slower than the default {@link ParticleRenderer#CANVAS} renderer. The framebuffer keeps the
+ * size it was created with and is drawn at the top left corner of the view, whatever the size
+ * of the view.
+ *
+ * @see ParticleSystem#setRenderer(ParticleRenderer)
+ */
+public class SoftwareParticleRenderer implements ParticleRenderer {
+
+	private final IntBuffer mBuffer;
+	private final int mWidth;
+	private final int mHeight;
+	private final WeakHashMap<Bitmap, Sprite> mSprites = new WeakHashMap<>();
+	// A view of the framebuffer for bulk copies, and the span being blended
+	private final IntBuffer mSpan;
+	private final int[] mRow;
+	private Bitmap mPresented;
+
+	// The premultiplied pixels of a sprite
+	private static class Sprite {
+
+		final int[] mPixels;
+		final int mWidth;
+		final int mGeneration;
+
+		Sprite(Bitmap bitmap) {
+			int width = bitmap.getWidth();
+			int height = bitmap.getHeight();
+			mPixels = new int[width * height];
+			mWidth = width;
+			mGeneration = bitmap.getGenerationId();
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+				// The pixels of hardware bitmaps can only be read from a software copy
+				Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+				copy.getPixels(mPixels, 0, width, 0, 0, width, height);
+				copy.recycle();
+			}
+			else {
+				bitmap.getPixels(mPixels, 0, width, 0, 0, width, height);
+			}
+			boolean mask = bitmap.getConfig() == Bitmap.Config.ALPHA_8;
+			for (int i = 0; i < mPixels.length; i++) {
+				int color = mPixels[i];
+				int a = color >>> 24;
+				if (mask) {
+					// Alpha masks are white, tinted by the color of the particle
+					mPixels[i] = a << 24 | a << 16 | a << 8 | a;
+				}
+				else if (a < 255) {
+					mPixels[i] = a << 24 | div255(((color >> 16) & 0xFF) * a) << 16
+							| div255(((color >> 8) & 0xFF) * a) << 8 | div255((color & 0xFF) * a);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a renderer with a direct framebuffer in native byte order. Used as the renderer of a
+	 * particle system, the size should match the view the particles are drawn to.
+	 *
+	 * @param width The width of the framebuffer.
+	 * @param height The height of the framebuffer.
+	 */
+	public SoftwareParticleRenderer(@Px int width, @Px int height) {
+		this(ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer(),
+				width, height);
+	}
+
+	/**
+	 * Creates a renderer drawing into an existing framebuffer, such as a wrapped {@code int[]}.
+	 *
+	 * @param buffer The framebuffer, holding at least {@code width * height} pixels from index 0.
+	 * @param width The width of the framebuffer.
+	 * @param height The height of the framebuffer.
+	 */
+	public SoftwareParticleRenderer(@NonNull IntBuffer buffer, @Px int width, @Px int height) {
+		if (buffer.capacity() < width * height) {
+			throw new IllegalArgumentException("The buffer is smaller than " + width + "x" + height);
+		}
+		mBuffer = buffer;
+		mSpan = buffer.duplicate();
+		mSpan.clear();
+		mRow = new int[width];
+		mWidth = width;
+		mHeight = height;
+	}
+
+	@NonNull
+	public IntBuffer getBuffer() {
+		return mBuffer;
+	}
+
+	@Px
+	public int getWidth() {
+		return mWidth;
+	}
+
+	@Px
+	public int getHeight() {
+		return mHeight;
+	}
+
+	/**
+	 * Clears the framebuffer to transparent.
+	 */
+	public void clear() {
+		int size = mWidth * mHeight;
+		for (int i = 0; i < size; i++) {
+			mBuffer.put(i, 0);
+		}
+	}
+
+	/**
+	 * Draws particles over the content of the framebuffer.
+	 *
+	 * @param particles The particles, drawn in order.
+	 */
+	public void rasterize(@NonNull List<Particle> particles) {
+		for (int i = 0; i < particles.size(); i++) {
+			rasterize(particles.get(i));
+		}
+	}
+
+	/**
+	 * Draws a particle over the content of the framebuffer.
+	 *
+	 * @param particle The particle.
+	 */
+	public void rasterize(@NonNull Particle particle) {
+		float scale = particle.mScale;
+		int alpha = particle.mAlpha;
+		if (scale <= 0 || alpha <= 0) {
+			return;
+		}
+		Sprite sprite = getSprite(particle.mImage);
+		int spriteWidth = sprite.mWidth;
+		int spriteHeight = spriteWidth > 0 ? sprite.mPixels.length / spriteWidth : 0;
+		if (spriteHeight == 0) {
+			return;
+		}
+		// The particle rotates and scales around the center of its sprite
+		float pivotX = spriteWidth / 2;
+		float pivotY = spriteHeight / 2;
+		float centerX = particle.getCenterX();
+		float centerY = particle.getCenterY();
+		double radians = Math.toRadians(particle.getRotation());
+		float cos = (float) Math.cos(radians);
+		float sin = (float) Math.sin(radians);
+
+		// Vertical extent of the transformed sprite
+		float extentTop = scale * Math.max(Math.abs(sin * -pivotX + cos * -pivotY),
+				Math.abs(sin * (spriteWidth - pivotX) + cos * -pivotY));
+		float extentBottom = scale * Math.max(Math.abs(sin * -pivotX + cos * (spriteHeight - pivotY)),
+				Math.abs(sin * (spriteWidth - pivotX) + cos * (spriteHeight - pivotY)));
+		float extent = Math.max(extentTop, extentBottom);
+		int firstRow = Math.max(0, (int) Math.floor(centerY - extent));
+		int lastRow = Math.min(mHeight - 1, (int) Math.ceil(centerY + extent));
+
+		// Sprite coordinates step by (du, dv) for each pixel to the right
+		float du = cos / scale;
+		float dv = -sin / scale;
+		// Fixed point factors (1 << 16 is 1) of the sprite channels, combining the tint and alpha
+		int color = particle.mColor;
+		int scaleA = (alpha << 16) / 255;
+		int scaleR = (int) (((long) (color >> 16 & 0xFF) * alpha << 16) / (255 * 255));
+		int scaleG = (int) (((long) (color >> 8 & 0xFF) * alpha << 16) / (255 * 255));
+		int scaleB = (int) (((long) (color & 0xFF) * alpha << 16) / (255 * 255));
+		int[] pixels = sprite.mPixels;
+
+		for (int y = firstRow; y <= lastRow; y++) {
+			float dy = y + 0.5f - centerY;
+			float dx = 0.5f - centerX;
+			// Sprite coordinates at the center of the first pixel of the row
+			float u = pivotX + (cos * dx + sin * dy) / scale;
+			float v = pivotY + (-sin * dx + cos * dy) / scale;
+			// Only visit the pixels mapping inside the sprite
+			float start = Math.max(0, Math.max(spanStart(u, du, spriteWidth), spanStart(v, dv, spriteHeight)));
+			float end = Math.min(mWidth, Math.min(spanEnd(u, du, spriteWidth), spanEnd(v, dv, spriteHeight)));
+			if (end <= start) {
+				continue;
+			}
+			int firstColumn = (int) Math.ceil(start);
+			int count = (int) Math.ceil(end) - firstColumn;
+			if (count <= 0) {
+				continue;
+			}
+			// Blend the span in an array, copied from and back to the framebuffer in bulk
+			mSpan.position(y * mWidth + firstColumn);
+			mSpan.get(mRow, 0, count);
+			// Sprite coordinates in 16.16 fixed point
+			int fixedU = (int) ((u + du * firstColumn) * 65536);
+			int fixedV = (int) ((v + dv * firstColumn) * 65536);
+			int stepU = (int) (du * 65536);
+			int stepV = (int) (dv * 65536);
+			for (int i = 0; i < count; i++, fixedU += stepU, fixedV += stepV) {
+				int su = Math.min(spriteWidth - 1, Math.max(0, fixedU >> 16));
+				int sv = Math.min(spriteHeight - 1, Math.max(0, fixedV >> 16));
+				int source = pixels[sv * spriteWidth + su];
+				int a = ((source >>> 24) * scaleA + 0x8000) >> 16;
+				if (a == 0) {
+					continue;
+				}
+				int r = (((source >> 16) & 0xFF) * scaleR + 0x8000) >> 16;
+				int g = (((source >> 8) & 0xFF) * scaleG + 0x8000) >> 16;
+				int b = ((source & 0xFF) * scaleB + 0x8000) >> 16;
+				if (a < 255) {
+					int destination = mRow[i];
+					int inverse = 255 - a;
+					a += div255((destination >>> 24) * inverse);
+					r += div255(((destination >> 16) & 0xFF) * inverse);
+					g += div255(((destination >> 8) & 0xFF) * inverse);
+					b += div255((destination & 0xFF) * inverse);
+				}
+				mRow[i] = a << 24 | r << 16 | g << 8 | b;
+			}
+			mSpan.position(y * mWidth + firstColumn);
+			mSpan.put(mRow, 0, count);
+		}
+	}
+
+	// First x where start + step * x >= 0, for a coordinate moving by step per pixel
+	private static float spanStart(float start, float step, int size) {
+		if (step > 0) {
+			return -start / step;
+		}
+		if (step < 0) {
+			return (size - start) / step;
+		}
+		return start >= 0 && start < size ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+	}
+
+	// First x after the span where the coordinate is within [0, size)
+	private static float spanEnd(float start, float step, int size) {
+		if (step > 0) {
+			return (size - start) / step;
+		}
+		if (step < 0) {
+			return -start / step;
+		}
+		return start >= 0 && start < size ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Drops the premultiplied copies of the sprites and the bitmap the framebuffer is copied to,
+	 * which are created again when next needed. The framebuffer itself is kept.
+	 *
+	 * @return The number of bytes released.
+	 */
+	public long trimMemory() {
+		long byteCount = 0;
+		for (Sprite sprite : mSprites.values()) {
+			byteCount += sprite.mPixels.length * 4L;
+		}
+		mSprites.clear();
+		if (mPresented != null) {
+			byteCount += mPresented.getByteCount();
+			mPresented = null;
+		}
+		return byteCount;
+	}
+
+	private Sprite getSprite(Bitmap bitmap) {
+		Sprite sprite = mSprites.get(bitmap);
+		if (sprite == null || sprite.mGeneration != bitmap.getGenerationId()) {
+			sprite = new Sprite(bitmap);
+			mSprites.put(bitmap, sprite);
+		}
+		return sprite;
+	}
+
+	// Converts a premultiplied color to the straight color taken by bitmaps
+	static int unpremultiply(int color) {
+		int a = color >>> 24;
+		if (a == 0 || a == 255) {
+			return color;
+		}
+		return a << 24 | Math.min(255, (((color >> 16) & 0xFF) * 255 + a / 2) / a) << 16
+				| Math.min(255, (((color >> 8) & 0xFF) * 255 + a / 2) / a) << 8
+				| Math.min(255, ((color & 0xFF) * 255 + a / 2) / a);
+	}
+
+	// Divides a product of two 8 bit values by 255, rounded
+	private static int div255(int value) {
+		value += 128;
+		return (value + (value >> 8)) >> 8;
+	}
+
+	/**
+	 * Rasterizes the particles into a cleared framebuffer, then copies it to the canvas at
+	 * {@code (0, 0)}, without scaling it to the canvas.
+	 */
+	@Override
+	public void render(@NonNull Canvas canvas, @NonNull List<Particle> particles) {
+		clear();
+		rasterize(particles);
+		if (mPresented == null) {
+			mPresented = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+		}
+		// Bitmaps take colors that are not premultiplied
+		for (int y = 0; y < mHeight; y++) {
+			for (int x = 0; x < mWidth; x++) {
+				mRow[x] = unpremultiply(mBuffer.get(y * mWidth + x));
+			}
+			mPresented.setPixels(mRow, 0, mWidth, 0, y, mWidth, 1);
+		}
+		canvas.drawBitmap(mPresented, 0, 0, null);
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.particles.modifiers.SpatialModifier;
+
+import java.util.List;
+
+/**
+ * A uniform grid over the centers of the active particles of a {@link ParticleSystem}, used to
+ * find the particles near a point without looking at every particle.
+ * <p>
+ * The grid is rebuilt before each update with a counting sort of the particles by cell, which
+ * takes linear time. Positions and cells are stored in primitive arrays that are only reallocated
+ * when the number of particles grows.
+ *
+ * @see SpatialModifier
+ */
+public class SpatialGrid {
+
+	// Limits the number of cells when the particles are spread over a large area
+	private static final int MIN_MAX_CELLS = 1024;
+	private static final int CELLS_PER_PARTICLE = 4;
+
+	private int mCount;
+	private Particle[] mParticles = new Particle[0];
+	private float[] mX = new float[0];
+	private float[] mY = new float[0];
+	private int[] mParticleCells = new int[0];
+
+	private float mCellSize;
+	private float mOriginX;
+	private float mOriginY;
+	private int mColumns;
+	private int mRows;
+	// Start of each cell in mCellParticles, with one extra entry marking the end of the last cell
+	private int[] mCellStarts = new int[1];
+	// Particle indices sorted by cell
+	private int[] mCellParticles = new int[0];
+
+	/**
+	 * Rebuilds the grid from the current centers of the given particles.
+	 *
+	 * @param particles The particles.
+	 * @param cellSize The preferred size of a cell in pixels, usually the largest query radius.
+	 */
+	void rebuild(@NonNull List<Particle> particles, @Px float cellSize) {
+		mCount = particles.size();
+		ensureParticleCapacity(mCount);
+		if (mCount == 0) {
+			mColumns = 0;
+			mRows = 0;
+			return;
+		}
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < mCount; i++) {
+			Particle p = particles.get(i);
+			float x = p.getCenterX();
+			float y = p.getCenterY();
+			mParticles[i] = p;
+			mX[i] = x;
+			mY[i] = y;
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+
+		// Grow the cells if there would be too many of them
+		int maxCells = Math.max(MIN_MAX_CELLS, mCount * CELLS_PER_PARTICLE);
+		float width = maxX - minX;
+		float height = maxY - minY;
+		mCellSize = Math.max(cellSize, 1f);
+		while ((width / mCellSize + 1) * (height / mCellSize + 1) > maxCells) {
+			mCellSize *= 2;
+		}
+		mOriginX = minX;
+		mOriginY = minY;
+		mColumns = (int) (width / mCellSize) + 1;
+		mRows = (int) (height / mCellSize) + 1;
+		int cellCount = mColumns * mRows;
+		if (mCellStarts.length < cellCount + 1) {
+			mCellStarts = new int[cellCount + 1];
+		}
+
+		// Counting sort of the particles by cell
+		for (int i = 0; i <= cellCount; i++) {
+			mCellStarts[i] = 0;
+		}
+		for (int i = 0; i < mCount; i++) {
+			int cell = getRow(mY[i]) * mColumns + getColumn(mX[i]);
+			mParticleCells[i] = cell;
+			mCellStarts[cell]++;
+		}
+		// Turn the counts into the end of each cell...
+		for (int i = 1; i < cellCount; i++) {
+			mCellStarts[i] += mCellStarts[i - 1];
+		}
+		mCellStarts[cellCount] = mCount;
+		// ...and move them back to the start while placing the particles
+		for (int i = mCount - 1; i >= 0; i--) {
+			mCellParticles[--mCellStarts[mParticleCells[i]]] = i;
+		}
+	}
+
+	private void ensureParticleCapacity(int count) {
+		if (mParticles.length < count) {
+			int capacity = Math.max(count, mParticles.length * 2);
+			mParticles = new Particle[capacity];
+			mX = new float[capacity];
+			mY = new float[capacity];
+			mParticleCells = new int[capacity];
+			mCellParticles = new int[capacity];
+		}
+		// Do not hold on to expired particles
+		for (int i = count; i < mParticles.length && mParticles[i] != null; i++) {
+			mParticles[i] = null;
+		}
+	}
+
+	private int getColumn(float x) {
+		return Math.min(mColumns - 1, Math.max(0, (int) ((x - mOriginX) / mCellSize)));
+	}
+
+	private int getRow(float y) {
+		return Math.min(mRows - 1, Math.max(0, (int) ((y - mOriginY) / mCellSize)));
+	}
+
+	/**
+	 * Returns the number of particles in the grid.
+	 */
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * Returns the particle at the given index of the grid.
+	 */
+	@NonNull
+	public Particle getParticle(int index) {
+		return mParticles[index];
+	}
+
+	/**
+	 * Returns the horizontal position of the center of the particle at the given index when the
+	 * grid was built.
+	 */
+	@Px
+	public float getX(int index) {
+		return mX[index];
+	}
+
+	/**
+	 * Returns the vertical position of the center of the particle at the given index when the
+	 * grid was built.
+	 */
+	@Px
+	public float getY(int index) {
+		return mY[index];
+	}
+
+	/**
+	 * Finds the particles whose center is within a radius of a point. The search stops when the output array is
+	 * full, which bounds the cost of a query in crowded areas.
+	 *
+	 * @param x The horizontal position of the point.
+	 * @param y The vertical position of the point.
+	 * @param radius The radius around the point.
+	 * @param out The array receiving the indices of the particles found.
+	 * @return The number of indices written to {@code out}.
+	 */
+	public int query(@Px float x, @Px float y, @Px float radius, @NonNull int[] out) {
+		if (mCount == 0) {
+			return 0;
+		}
+		int firstColumn = getColumn(x - radius);
+		int lastColumn = getColumn(x + radius);
+		int firstRow = getRow(y - radius);
+		int lastRow = getRow(y + radius);
+		float radiusSquared = radius * radius;
+		int found = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * mColumns + column;
+				for (int i = mCellStarts[cell]; i < mCellStarts[cell + 1]; i++) {
+					int index = mCellParticles[i];
+					float dx = mX[index] - x;
+					float dy = mY[index] - y;
+					if (dx * dx + dy * dy <= radiusSquared) {
+						out[found++] = index;
+						if (found == out.length) {
+							return found;
+						}
+					}
+				}
+			}
+		}
+		return found;
+	}
+}
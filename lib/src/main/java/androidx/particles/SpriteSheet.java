@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The frames of a particle effect rendered by a {@link SpriteSheetBaker}, packed into a single
+ * bitmap.
+ * <p>
+ * Each frame is trimmed to the bounds of its visible pixels before being packed, and its metadata
+ * records where it lies in the sheet and where it goes in the full frame. The sheet can be saved
+ * with {@link Bitmap#compress(Bitmap.CompressFormat, int, java.io.OutputStream)} and the metadata
+ * with {@link #toByteArray()}, then loaded back with {@link #parse(Bitmap, ByteBuffer)}.
+ *
+ * @see SpriteSheetView
+ */
+public final class SpriteSheet {
+
+	private static final int MAGIC = 0x50535331;
+	private static final int VERSION = 1;
+
+	private final Bitmap mBitmap;
+	private final int mFrameWidth;
+	private final int mFrameHeight;
+	private final int mFrameDuration;
+	// Per frame: left and top in the sheet, width, height, then left and top in the full frame
+	private final short[] mFrames;
+
+	SpriteSheet(@NonNull Bitmap bitmap, int frameWidth, int frameHeight, int frameDuration,
+				@NonNull short[] frames) {
+		mBitmap = bitmap;
+		mFrameWidth = frameWidth;
+		mFrameHeight = frameHeight;
+		mFrameDuration = frameDuration;
+		mFrames = frames;
+	}
+
+	@NonNull
+	public Bitmap getBitmap() {
+		return mBitmap;
+	}
+
+	@Px
+	public int getFrameWidth() {
+		return mFrameWidth;
+	}
+
+	@Px
+	public int getFrameHeight() {
+		return mFrameHeight;
+	}
+
+	public int getFrameCount() {
+		return mFrames.length / 6;
+	}
+
+	/**
+	 * Returns how long each frame is shown in milliseconds.
+	 */
+	public int getFrameDuration() {
+		return mFrameDuration;
+	}
+
+	/**
+	 * Returns the duration of the animation in milliseconds.
+	 */
+	public long getDuration() {
+		return (long) getFrameCount() * mFrameDuration;
+	}
+
+	/**
+	 * Gets where a frame lies in the sheet. Frames without visible pixels are empty.
+	 *
+	 * @param frame The index of the frame.
+	 * @param out The rectangle receiving the bounds of the frame in the sheet.
+	 */
+	public void getSourceBounds(@IntRange(from=0) int frame, @NonNull Rect out) {
+		int i = frame * 6;
+		out.set(mFrames[i], mFrames[i + 1], mFrames[i] + mFrames[i + 2], mFrames[i + 1] + mFrames[i + 3]);
+	}
+
+	/**
+	 * Gets where the trimmed pixels of a frame go in the full frame.
+	 *
+	 * @param frame The index of the frame.
+	 * @param out The rectangle receiving the bounds of the pixels in the full frame.
+	 */
+	public void getFrameBounds(@IntRange(from=0) int frame, @NonNull Rect out) {
+		int i = frame * 6;
+		out.set(mFrames[i + 4], mFrames[i + 5], mFrames[i + 4] + mFrames[i + 2], mFrames[i + 5] + mFrames[i + 3]);
+	}
+
+	/**
+	 * Encodes the metadata of the frames, without the sheet itself. All numbers are big endian.
+	 *
+	 * @return The encoded metadata.
+	 */
+	@NonNull
+	public byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeShort(mFrameWidth);
+			out.writeShort(mFrameHeight);
+			out.writeInt(mFrameDuration);
+			out.writeInt(getFrameCount());
+			for (short value : mFrames) {
+				out.writeShort(value);
+			}
+		}
+		catch (IOException e) {
+			// Cannot happen when writing to memory
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes the metadata of a sprite sheet from the current position of a buffer, as encoded by
+	 * {@link #toByteArray()}.
+	 *
+	 * @param bitmap The sheet.
+	 * @param buffer The buffer holding the metadata.
+	 * @return The sprite sheet.
+	 * @throws IllegalArgumentException If the buffer does not hold valid metadata.
+	 */
+	@NonNull
+	public static SpriteSheet parse(@NonNull Bitmap bitmap, @NonNull ByteBuffer buffer) {
+		try {
+			if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+				throw new IllegalArgumentException("Not a sprite sheet");
+			}
+			int frameWidth = buffer.getShort() & 0xFFFF;
+			int frameHeight = buffer.getShort() & 0xFFFF;
+			int frameDuration = buffer.getInt();
+			int frameCount = buffer.getInt();
+			if (frameCount < 0 || frameCount > buffer.remaining() / 12) {
+				throw new IllegalArgumentException("Truncated sprite sheet");
+			}
+			short[] frames = new short[frameCount * 6];
+			buffer.asShortBuffer().get(frames);
+			buffer.position(buffer.position() + frames.length * 2);
+			return new SpriteSheet(bitmap, frameWidth, frameHeight, frameDuration, frames);
+		}
+		catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated sprite sheet", e);
+		}
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.annotation.WorkerThread;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Renders the effect of a configured {@link ParticleSystem} offline into a {@link SpriteSheet},
+ * so that small effects played often can be shown as a flipbook instead of simulated live.
+ * <p>
+ * The effect is emitted from the center of the frame and advanced at a fixed frame rate for its
+ * whole duration, without any view, timer or animator. The frames are rasterized by a
+ * {@link SoftwareParticleRenderer} rather than a {@link Canvas}, so baking runs on a worker thread
+ * or on the plain JVM, only creating the final bitmap needs Android. Each frame is trimmed to its
+ * visible pixels, consecutive identical frames are stored once, and the frames are packed in rows
+ * into a single bitmap.
+ */
+public class SpriteSheetBaker {
+
+	// Keeps frames apart so that filtering does not bleed between them when scaled
+	private static final int PADDING = 1;
+
+	private final int mFrameWidth;
+	private final int mFrameHeight;
+	private final int mFrameDuration;
+
+	// A packed sheet, before it is copied to a bitmap
+	static final class Frames {
+
+		final int[] mSheet;
+		final int mSheetWidth;
+		final int mSheetHeight;
+		final short[] mFrames;
+
+		Frames(int[] sheet, int sheetWidth, int sheetHeight, short[] frames) {
+			mSheet = sheet;
+			mSheetWidth = sheetWidth;
+			mSheetHeight = sheetHeight;
+			mFrames = frames;
+		}
+	}
+
+	/**
+	 * Creates a baker.
+	 *
+	 * @param frameWidth The width of a frame.
+	 * @param frameHeight The height of a frame.
+	 * @param framesPerSecond The frame rate of the animation.
+	 */
+	public SpriteSheetBaker(@Px @IntRange(from=1) int frameWidth, @Px @IntRange(from=1) int frameHeight,
+							@IntRange(from=1, to=1000) int framesPerSecond) {
+		mFrameWidth = frameWidth;
+		mFrameHeight = frameHeight;
+		mFrameDuration = Math.max(1, Math.round(1000f / framesPerSecond));
+	}
+
+	/**
+	 * Renders a one shot of the particle system. The particle system must not be running.
+	 *
+	 * @param system The configured particle system.
+	 * @param numParticles Number of particles launched on the one shot.
+	 * @return The sprite sheet.
+	 */
+	@NonNull
+	@WorkerThread
+	public SpriteSheet bakeOneShot(@NonNull ParticleSystem system, int numParticles) {
+		return bake(system, numParticles, 0, 0);
+	}
+
+	/**
+	 * Renders a time-limited emission of the particle system, until its last particle expires.
+	 * The particle system must not be running.
+	 *
+	 * @param system The configured particle system.
+	 * @param particlesPerSecond Number of particles per second that will be emitted.
+	 * @param emittingTime Time the emitter will be emitting particles in milliseconds.
+	 * @return The sprite sheet.
+	 */
+	@NonNull
+	@WorkerThread
+	public SpriteSheet bakeEmission(@NonNull ParticleSystem system, @IntRange(from=1) int particlesPerSecond,
+									@IntRange(from=0) int emittingTime) {
+		return bake(system, 0, particlesPerSecond, emittingTime);
+	}
+
+	private SpriteSheet bake(ParticleSystem system, int numParticles, int particlesPerSecond, int emittingTime) {
+		Frames frames = render(system, numParticles, particlesPerSecond, emittingTime);
+		Bitmap sheet = Bitmap.createBitmap(frames.mSheet, frames.mSheetWidth, frames.mSheetHeight,
+				Bitmap.Config.ARGB_8888);
+		return new SpriteSheet(sheet, mFrameWidth, mFrameHeight, mFrameDuration, frames.mFrames);
+	}
+
+	// Renders and packs the frames into straight ARGB pixels. Does not create any bitmap, so that
+	// it runs on the plain JVM
+	@NonNull
+	Frames render(@NonNull ParticleSystem system, int numParticles, int particlesPerSecond, int emittingTime) {
+		long duration = system.startOffline(mFrameWidth / 2, mFrameHeight / 2, numParticles,
+				particlesPerSecond, emittingTime);
+		int frameCount = (int) Math.max(1, (duration + mFrameDuration - 1) / mFrameDuration);
+		// Per frame: left and top in the sheet, width, height, then left and top in the full frame
+		short[] frames = new short[frameCount * 6];
+		int[][] pixels = new int[frameCount][];
+
+		int[] framePixels = new int[mFrameWidth * mFrameHeight];
+		SoftwareParticleRenderer renderer = new SoftwareParticleRenderer(IntBuffer.wrap(framePixels),
+				mFrameWidth, mFrameHeight);
+		try {
+			for (int i = 0; i < frameCount; i++) {
+				system.updateOffline((long) i * mFrameDuration);
+				renderer.clear();
+				renderer.rasterize(system.getActiveParticles());
+				pixels[i] = trim(framePixels, frames, i * 6);
+			}
+		}
+		finally {
+			system.finishOffline();
+		}
+		return pack(pixels, frames);
+	}
+
+	// Crops a frame to the bounds of its visible pixels, stored at the given offset of the frames
+	private int[] trim(int[] pixels, short[] frames, int offset) {
+		int left = mFrameWidth;
+		int top = mFrameHeight;
+		int right = 0;
+		int bottom = 0;
+		for (int y = 0; y < mFrameHeight; y++) {
+			int row = y * mFrameWidth;
+			for (int x = 0; x < mFrameWidth; x++) {
+				if ((pixels[row + x] >>> 24) != 0) {
+					left = Math.min(left, x);
+					right = Math.max(right, x + 1);
+					top = Math.min(top, y);
+					bottom = y + 1;
+				}
+			}
+		}
+		if (right <= left) {
+			// Nothing visible, the frame stays empty
+			return new int[0];
+		}
+		int width = right - left;
+		int height = bottom - top;
+		int[] trimmed = new int[width * height];
+		for (int y = 0; y < height; y++) {
+			int row = (top + y) * mFrameWidth + left;
+			for (int x = 0; x < width; x++) {
+				trimmed[y * width + x] = SoftwareParticleRenderer.unpremultiply(pixels[row + x]);
+			}
+		}
+		frames[offset + 2] = (short) width;
+		frames[offset + 3] = (short) height;
+		frames[offset + 4] = (short) left;
+		frames[offset + 5] = (short) top;
+		return trimmed;
+	}
+
+	// Places the frames in rows, tallest first, into a sheet about as wide as it is high
+	@NonNull
+	static Frames pack(@NonNull int[][] pixels, @NonNull final short[] frames) {
+		int frameCount = pixels.length;
+		Integer[] order = new Integer[frameCount];
+		long area = 0;
+		int sheetWidth = 1;
+		for (int i = 0; i < frameCount; i++) {
+			order[i] = i;
+			int width = frames[i * 6 + 2] + PADDING;
+			area += (long) width * (frames[i * 6 + 3] + PADDING);
+			sheetWidth = Math.max(sheetWidth, width);
+		}
+		sheetWidth = Math.max(sheetWidth, (int) Math.ceil(Math.sqrt(area)));
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return frames[b * 6 + 3] - frames[a * 6 + 3];
+			}
+		});
+
+		int x = 0;
+		int y = 0;
+		int rowHeight = 0;
+		int previous = -1;
+		for (int i = 0; i < frameCount; i++) {
+			int frame = order[i];
+			int offset = frame * 6;
+			if (pixels[frame].length == 0) {
+				continue;
+			}
+			if (frame > 0 && isSameFrame(pixels, frames, frame - 1, frame)) {
+				// Placed along with the first of the identical frames
+				continue;
+			}
+			int width = frames[offset + 2];
+			if (x + width > sheetWidth) {
+				x = 0;
+				y += rowHeight + PADDING;
+				rowHeight = 0;
+			}
+			frames[offset] = (short) x;
+			frames[offset + 1] = (short) y;
+			x += width + PADDING;
+			rowHeight = Math.max(rowHeight, frames[offset + 3]);
+		}
+		int sheetHeight = Math.max(1, y + rowHeight);
+		int[] sheet = new int[sheetWidth * sheetHeight];
+		for (int frame = 0; frame < frameCount; frame++) {
+			int offset = frame * 6;
+			if (frame > 0 && isSameFrame(pixels, frames, frame - 1, frame)) {
+				frames[offset] = frames[offset - 6];
+				frames[offset + 1] = frames[offset - 5];
+				pixels[frame] = pixels[frame - 1];
+			}
+			else {
+				int width = frames[offset + 2];
+				for (int row = 0; row < frames[offset + 3]; row++) {
+					System.arraycopy(pixels[frame], row * width, sheet,
+							(frames[offset + 1] + row) * sheetWidth + frames[offset], width);
+				}
+			}
+		}
+		return new Frames(sheet, sheetWidth, sheetHeight, frames);
+	}
+
+	private static boolean isSameFrame(int[][] pixels, short[] frames, int a, int b) {
+		for (int i = 2; i < 6; i++) {
+			if (frames[a * 6 + i] != frames[b * 6 + i]) {
+				return false;
+			}
+		}
+		return pixels[a] == pixels[b] || Arrays.equals(pixels[a], pixels[b]);
+	}
+}
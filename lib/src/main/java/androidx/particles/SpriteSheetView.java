@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A view playing a {@link SpriteSheet}, with the full frame stretched over the view.
+ * <p>
+ * Only one bitmap draw is needed per frame, and the view is only invalidated when the next frame
+ * is due.
+ */
+public class SpriteSheetView extends View {
+
+	private static final int NO_FRAME = -1;
+
+	private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private final Rect mSource = new Rect();
+	private final Rect mFrameBounds = new Rect();
+	private final RectF mDestination = new RectF();
+	private SpriteSheet mSpriteSheet;
+	private boolean mLooping;
+	private boolean mRunning;
+	private long mStartTime;
+	private int mFrame = NO_FRAME;
+
+	public SpriteSheetView(Context context, @Nullable AttributeSet attrs, int defStyle) {
+		super(context, attrs, defStyle);
+	}
+
+	public SpriteSheetView(Context context, @Nullable AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	public SpriteSheetView(Context context) {
+		super(context);
+	}
+
+	public void setSpriteSheet(@Nullable SpriteSheet spriteSheet) {
+		mSpriteSheet = spriteSheet;
+		mRunning = false;
+		mFrame = NO_FRAME;
+		invalidate();
+	}
+
+	@Nullable
+	public SpriteSheet getSpriteSheet() {
+		return mSpriteSheet;
+	}
+
+	/**
+	 * Sets whether the animation starts over after its last frame instead of stopping there.
+	 */
+	public void setLooping(boolean looping) {
+		mLooping = looping;
+	}
+
+	/**
+	 * Plays the animation from its first frame.
+	 */
+	public void start() {
+		mStartTime = SystemClock.uptimeMillis();
+		mRunning = mSpriteSheet != null;
+		invalidate();
+	}
+
+	/**
+	 * Stops the animation on its current frame.
+	 */
+	public void stop() {
+		mRunning = false;
+	}
+
+	public boolean isRunning() {
+		return mRunning;
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		stop();
+	}
+
+	@Override
+	protected void onDraw(@NonNull Canvas canvas) {
+		super.onDraw(canvas);
+		if (mSpriteSheet == null) {
+			return;
+		}
+		int frameDuration = mSpriteSheet.getFrameDuration();
+		long elapsed = SystemClock.uptimeMillis() - mStartTime;
+		if (mRunning) {
+			mFrame = (int) (elapsed / frameDuration);
+			if (mLooping) {
+				mFrame %= mSpriteSheet.getFrameCount();
+			}
+			else if (mFrame >= mSpriteSheet.getFrameCount()) {
+				// The animation is over, clear the view
+				mRunning = false;
+				mFrame = NO_FRAME;
+			}
+		}
+		if (mFrame == NO_FRAME) {
+			return;
+		}
+
+		mSpriteSheet.getSourceBounds(mFrame, mSource);
+		mSpriteSheet.getFrameBounds(mFrame, mFrameBounds);
+		if (mFrameBounds.right > mFrameBounds.left) {
+			float scaleX = (float) getWidth() / mSpriteSheet.getFrameWidth();
+			float scaleY = (float) getHeight() / mSpriteSheet.getFrameHeight();
+			mDestination.set(mFrameBounds.left * scaleX, mFrameBounds.top * scaleY,
+					mFrameBounds.right * scaleX, mFrameBounds.bottom * scaleY);
+			canvas.drawBitmap(mSpriteSheet.getBitmap(), mSource, mDestination, mPaint);
+		}
+		if (mRunning) {
+			postInvalidateDelayed(frameDuration - elapsed % frameDuration);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+
+/**
+ * Caches the bounds of a view relative to another view, so that they can be read from any thread
+ * without calling {@link View#getLocationInWindow(int[])} for every particle.
+ * <p>
+ * The bounds are refreshed on the UI thread before every frame is drawn, until {@link #release()}
+ * is called.
+ */
+public class ViewAnchor {
+
+	private final View mView;
+	private final View mRelativeTo;
+	private final int[] mLocation = new int[2];
+	private final int[] mRelativeLocation = new int[2];
+
+	private volatile float mLeft;
+	private volatile float mTop;
+	private volatile float mRight;
+	private volatile float mBottom;
+
+	private final ViewTreeObserver.OnPreDrawListener mOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+		@Override
+		public boolean onPreDraw() {
+			update();
+			return true;
+		}
+	};
+
+	/**
+	 * Creates an anchor, must be called on the UI thread.
+	 *
+	 * @param view The view to track.
+	 * @param relativeTo The view the bounds are relative to, usually the parent of a particle system.
+	 */
+	@MainThread
+	public ViewAnchor(@NonNull View view, @NonNull View relativeTo) {
+		mView = view;
+		mRelativeTo = relativeTo;
+		update();
+		view.getViewTreeObserver().addOnPreDrawListener(mOnPreDrawListener);
+	}
+
+	/**
+	 * Refreshes the bounds immediately.
+	 */
+	@MainThread
+	public void update() {
+		mView.getLocationInWindow(mLocation);
+		mRelativeTo.getLocationInWindow(mRelativeLocation);
+		mLeft = mLocation[0] - mRelativeLocation[0];
+		mTop = mLocation[1] - mRelativeLocation[1];
+		mRight = mLeft + mView.getWidth();
+		mBottom = mTop + mView.getHeight();
+	}
+
+	/**
+	 * Stops refreshing the bounds.
+	 */
+	@MainThread
+	public void release() {
+		// The observer of a view changes when it is attached, its listeners are merged into the new one
+		ViewTreeObserver observer = mView.getViewTreeObserver();
+		if (observer.isAlive()) {
+			observer.removeOnPreDrawListener(mOnPreDrawListener);
+		}
+	}
+
+	@NonNull
+	public View getView() {
+		return mView;
+	}
+
+	@Px
+	public float getLeft() {
+		return mLeft;
+	}
+
+	@Px
+	public float getTop() {
+		return mTop;
+	}
+
+	@Px
+	public float getRight() {
+		return mRight;
+	}
+
+	@Px
+	public float getBottom() {
+		return mBottom;
+	}
+
+	@Px
+	public float getCenterX() {
+		return (mLeft + mRight) / 2;
+	}
+
+	@Px
+	public float getCenterY() {
+		return (mTop + mBottom) / 2;
+	}
+}
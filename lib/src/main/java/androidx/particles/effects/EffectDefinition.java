@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.effects;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.particles.ParticleSystem;
+import androidx.particles.initializers.AccelerationInitializer;
+import androidx.particles.initializers.ColorInitializer;
+import androidx.particles.initializers.ParticleInitializer;
+import androidx.particles.initializers.RotationInitializer;
+import androidx.particles.initializers.RotationSpeedInitializer;
+import androidx.particles.initializers.ScaleInitializer;
+import androidx.particles.initializers.SpeedByComponentsInitializer;
+import androidx.particles.initializers.SpeedModuleAndRangeInitializer;
+import androidx.particles.modifiers.AccelerationModifier;
+import androidx.particles.modifiers.AlphaModifier;
+import androidx.particles.modifiers.ParticleModifier;
+import androidx.particles.modifiers.ScaleModifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * A particle effect described as data: the sprite, the particle pool, the emission, and the
+ * initializers and modifiers of the particles.
+ * <p>
+ * A definition can be built with the same setters as a {@link ParticleSystem}, or parsed from a
+ * compact binary encoding, see {@link #toByteArray()} and {@link EffectLibrary}. Initializers and
+ * modifiers are created once per definition and shared by every particle system created from it,
+ * so instantiating a known effect does not run its configuration again. Speeds and accelerations
+ * are in dp, like with a particle system, and their initializers are created again only when a
+ * particle system has a different density. Definitions are not meant to be changed once particle
+ * systems have been created from them.
+ */
+public final class EffectDefinition {
+
+	public static final int INTERPOLATOR_LINEAR = 0;
+	public static final int INTERPOLATOR_ACCELERATE = 1;
+	public static final int INTERPOLATOR_DECELERATE = 2;
+	public static final int INTERPOLATOR_ACCELERATE_DECELERATE = 3;
+
+	// "PFX1"
+	private static final int MAGIC = 0x50465831;
+	private static final int VERSION = 1;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int INITIALIZER_SPEED_MODULE_AND_ANGLE = 1;
+	private static final int INITIALIZER_SPEED_BY_COMPONENTS = 2;
+	private static final int INITIALIZER_ACCELERATION = 3;
+	private static final int INITIALIZER_ROTATION = 4;
+	private static final int INITIALIZER_ROTATION_SPEED = 5;
+	private static final int INITIALIZER_SCALE = 6;
+	private static final int INITIALIZER_COLORS = 7;
+	private static final int MODIFIER_ALPHA = 64;
+	private static final int MODIFIER_SCALE = 65;
+	private static final int MODIFIER_ACCELERATION = 66;
+
+	private String mSprite;
+	private int mMaxParticles;
+	private long mTimeToLive;
+	private int mParticlesPerSecond;
+	private int mEmittingTime;
+	private int mOneShotCount;
+	private final ArrayList<Entry> mEntries = new ArrayList<>();
+	private volatile int mSpriteResId;
+
+	// An initializer or modifier, with the parameters it is encoded with
+	private static final class Entry {
+
+		final int mType;
+		final float[] mFloats;
+		final int[] mInts;
+		private Object mInstance;
+		private float mDpToPxScale;
+
+		Entry(int type, float[] floats, int[] ints) {
+			mType = type;
+			mFloats = floats;
+			mInts = ints;
+			mDpToPxScale = 1;
+			mInstance = create(type, floats, ints, mDpToPxScale);
+		}
+
+		synchronized Object getInstance(float dpToPxScale) {
+			if (mDpToPxScale != dpToPxScale && isScaled(mType)) {
+				mDpToPxScale = dpToPxScale;
+				mInstance = create(mType, mFloats, mInts, dpToPxScale);
+			}
+			return mInstance;
+		}
+	}
+
+	/**
+	 * Creates a definition.
+	 *
+	 * @param sprite The name of the drawable resource used as particle.
+	 * @param maxParticles The maximum number of particles.
+	 * @param timeToLive The time to live for the particles.
+	 */
+	public EffectDefinition(@NonNull String sprite, int maxParticles, long timeToLive) {
+		mSprite = sprite;
+		mMaxParticles = maxParticles;
+		mTimeToLive = timeToLive;
+	}
+
+	@NonNull
+	public String getSprite() {
+		return mSprite;
+	}
+
+	public int getMaxParticles() {
+		return mMaxParticles;
+	}
+
+	public long getTimeToLive() {
+		return mTimeToLive;
+	}
+
+	/**
+	 * Emits particles continuously when started.
+	 *
+	 * @param particlesPerSecond Number of particles per second that will be emitted.
+	 * @param emittingTime Time the emitter will be emitting particles, or {@code 0} until stopped.
+	 * @return This.
+	 */
+	@NonNull
+	public EffectDefinition setEmission(int particlesPerSecond, int emittingTime) {
+		mParticlesPerSecond = particlesPerSecond;
+		mEmittingTime = emittingTime;
+		mOneShotCount = 0;
+		return this;
+	}
+
+	/**
+	 * Launches particles in one shot when started.
+	 *
+	 * @param numParticles Number of particles launched on the one shot.
+	 * @return This.
+	 */
+	@NonNull
+	public EffectDefinition setOneShot(int numParticles) {
+		mOneShotCount = numParticles;
+		mParticlesPerSecond = 0;
+		mEmittingTime = 0;
+		return this;
+	}
+
+	/**
+	 * @see ParticleSystem#setSpeedModuleAndAngleRange(float, float, int, int)
+	 */
+	@NonNull
+	public EffectDefinition setSpeedModuleAndAngleRange(float speedMin, float speedMax,
+														@IntRange(from=0, to=360) int minAngle,
+														@IntRange(from=0, to=360) int maxAngle) {
+		return add(INITIALIZER_SPEED_MODULE_AND_ANGLE, new float[] {speedMin, speedMax},
+				new int[] {minAngle, maxAngle});
+	}
+
+	/**
+	 * @see ParticleSystem#setSpeedByComponentsRange(float, float, float, float)
+	 */
+	@NonNull
+	public EffectDefinition setSpeedByComponentsRange(float speedMinX, float speedMaxX,
+													  float speedMinY, float speedMaxY) {
+		return add(INITIALIZER_SPEED_BY_COMPONENTS,
+				new float[] {speedMinX, speedMaxX, speedMinY, speedMaxY}, new int[0]);
+	}
+
+	/**
+	 * @see ParticleSystem#setAccelerationModuleAndAngleRange(float, float, int, int)
+	 */
+	@NonNull
+	public EffectDefinition setAccelerationModuleAndAngleRange(float minAcceleration, float maxAcceleration,
+															   @IntRange(from=0, to=360) int minAngle,
+															   @IntRange(from=0, to=360) int maxAngle) {
+		return add(INITIALIZER_ACCELERATION, new float[] {minAcceleration, maxAcceleration},
+				new int[] {minAngle, maxAngle});
+	}
+
+	/**
+	 * @see ParticleSystem#setInitialRotationRange(int, int)
+	 */
+	@NonNull
+	public EffectDefinition setInitialRotationRange(@IntRange(from=0, to=360) int minAngle,
+													@IntRange(from=0, to=360) int maxAngle) {
+		return add(INITIALIZER_ROTATION, new float[0], new int[] {minAngle, maxAngle});
+	}
+
+	/**
+	 * @see ParticleSystem#setRotationSpeedRange(float, float)
+	 */
+	@NonNull
+	public EffectDefinition setRotationSpeedRange(float minRotationSpeed, float maxRotationSpeed) {
+		return add(INITIALIZER_ROTATION_SPEED, new float[] {minRotationSpeed, maxRotationSpeed}, new int[0]);
+	}
+
+	/**
+	 * @see ParticleSystem#setScaleRange(float, float)
+	 */
+	@NonNull
+	public EffectDefinition setScaleRange(float minScale, float maxScale) {
+		return add(INITIALIZER_SCALE, new float[] {minScale, maxScale}, new int[0]);
+	}
+
+	/**
+	 * @throws IllegalArgumentException If there is no color.
+	 * @see ParticleSystem#setColors(int...)
+	 */
+	@NonNull
+	public EffectDefinition setColors(@NonNull @ColorInt int... colors) {
+		if (colors.length == 0) {
+			throw new IllegalArgumentException("Color array can not be empty");
+		}
+		return add(INITIALIZER_COLORS, new float[0], colors.clone());
+	}
+
+	/**
+	 * Adds an {@link AlphaModifier}.
+	 *
+	 * @param interpolator One of the {@code INTERPOLATOR_} constants.
+	 * @return This.
+	 */
+	@NonNull
+	public EffectDefinition addAlphaModifier(@IntRange(from=0, to=255) int startValue,
+											 @IntRange(from=0, to=255) int endValue,
+											 int startMillis, int endMillis, int interpolator) {
+		return add(MODIFIER_ALPHA, new float[0],
+				new int[] {startValue, endValue, startMillis, endMillis, interpolator});
+	}
+
+	/**
+	 * Adds a {@link ScaleModifier}.
+	 *
+	 * @param interpolator One of the {@code INTERPOLATOR_} constants.
+	 * @return This.
+	 */
+	@NonNull
+	public EffectDefinition addScaleModifier(float startValue, float endValue, int startMillis,
+											 int endMillis, int interpolator) {
+		return add(MODIFIER_SCALE, new float[] {startValue, endValue},
+				new int[] {startMillis, endMillis, interpolator});
+	}
+
+	/**
+	 * Adds an {@link AccelerationModifier}.
+	 *
+	 * @return This.
+	 */
+	@NonNull
+	public EffectDefinition addAccelerationModifier(float velocity, float angle) {
+		return add(MODIFIER_ACCELERATION, new float[] {velocity, angle}, new int[0]);
+	}
+
+	/**
+	 * @see ParticleSystem#setFadeOut(long)
+	 */
+	@NonNull
+	public EffectDefinition setFadeOut(int duration) {
+		return addAlphaModifier(255, 0, (int) mTimeToLive - duration, (int) mTimeToLive, INTERPOLATOR_LINEAR);
+	}
+
+	private EffectDefinition add(int type, float[] floats, int[] ints) {
+		// Counts are encoded on a single byte
+		if (mEntries.size() == 255 || floats.length > 255 || ints.length > 255) {
+			throw new IllegalStateException("Too many entries or parameters to encode");
+		}
+		mEntries.add(new Entry(type, floats, ints));
+		return this;
+	}
+
+	private static boolean isScaled(int type) {
+		return type == INITIALIZER_SPEED_MODULE_AND_ANGLE
+				|| type == INITIALIZER_SPEED_BY_COMPONENTS
+				|| type == INITIALIZER_ACCELERATION;
+	}
+
+	// Same conversions as the particle system setters, speeds and accelerations are in dp
+	private static Object create(int type, float[] f, int[] i, float s) {
+		switch (type) {
+			case INITIALIZER_SPEED_MODULE_AND_ANGLE:
+				int maxAngle = i[1];
+				while (maxAngle < i[0]) {
+					maxAngle += 360;
+				}
+				return new SpeedModuleAndRangeInitializer(f[0] * s, f[1] * s, i[0], maxAngle);
+			case INITIALIZER_SPEED_BY_COMPONENTS:
+				return new SpeedByComponentsInitializer(f[0] * s, f[1] * s, f[2] * s, f[3] * s);
+			case INITIALIZER_ACCELERATION:
+				return new AccelerationInitializer(f[0] * s, f[1] * s, i[0], i[1]);
+			case INITIALIZER_ROTATION:
+				return new RotationInitializer(i[0], i[1]);
+			case INITIALIZER_ROTATION_SPEED:
+				return new RotationSpeedInitializer(f[0], f[1]);
+			case INITIALIZER_SCALE:
+				return new ScaleInitializer(f[0], f[1]);
+			case INITIALIZER_COLORS:
+				return new ColorInitializer(i);
+			case MODIFIER_ALPHA:
+				return new AlphaModifier(i[0], i[1], i[2], i[3], createInterpolator(i[4]));
+			case MODIFIER_SCALE:
+				return new ScaleModifier(f[0], f[1], i[0], i[1], createInterpolator(i[2]));
+			case MODIFIER_ACCELERATION:
+				return new AccelerationModifier(f[0], f[1]);
+			default:
+				throw new IllegalArgumentException("Unknown effect entry type " + type);
+		}
+	}
+
+	private static Interpolator createInterpolator(int interpolator) {
+		switch (interpolator) {
+			case INTERPOLATOR_ACCELERATE:
+				return new AccelerateInterpolator();
+			case INTERPOLATOR_DECELERATE:
+				return new DecelerateInterpolator();
+			case INTERPOLATOR_ACCELERATE_DECELERATE:
+				return new AccelerateDecelerateInterpolator();
+			default:
+				return new LinearInterpolator();
+		}
+	}
+
+	/**
+	 * Creates a particle system configured with this definition, without starting it.
+	 *
+	 * @param a The parent activity.
+	 * @return The particle system.
+	 */
+	@NonNull
+	public ParticleSystem createParticleSystem(@NonNull Activity a) {
+		ParticleSystem system = new ParticleSystem(a, mMaxParticles, getSpriteResId(a), mTimeToLive);
+		applyTo(system);
+		return system;
+	}
+
+	/**
+	 * Adds the initializers and modifiers of this definition to a particle system, converting
+	 * speeds and accelerations with its density.
+	 *
+	 * @param system The particle system.
+	 */
+	public void applyTo(@NonNull ParticleSystem system) {
+		float dpToPxScale = system.dpToPx(1);
+		for (int i = 0; i < mEntries.size(); i++) {
+			Object instance = mEntries.get(i).getInstance(dpToPxScale);
+			if (instance instanceof ParticleInitializer) {
+				system.addInitializer((ParticleInitializer) instance);
+			}
+			else {
+				system.addModifier((ParticleModifier) instance);
+			}
+		}
+	}
+
+	/**
+	 * Creates a particle system configured with this definition and starts it as defined.
+	 *
+	 * @param a The parent activity.
+	 * @param emitter View from whose center the particles will be emitted.
+	 * @return The particle system.
+	 */
+	@NonNull
+	public ParticleSystem start(@NonNull Activity a, @NonNull View emitter) {
+		ParticleSystem system = createParticleSystem(a);
+		if (mOneShotCount > 0) {
+			system.oneShot(emitter, mOneShotCount);
+		}
+		else if (mEmittingTime > 0) {
+			system.emit(emitter, mParticlesPerSecond, mEmittingTime);
+		}
+		else {
+			system.emit(emitter, mParticlesPerSecond);
+		}
+		return system;
+	}
+
+	// Resolves the sprite name once, looking up resources by name is slow
+	private int getSpriteResId(Activity a) {
+		int resId = mSpriteResId;
+		if (resId == 0) {
+			resId = a.getResources().getIdentifier(mSprite, "drawable", a.getPackageName());
+			if (resId == 0) {
+				throw new IllegalStateException("Unknown sprite drawable " + mSprite);
+			}
+			mSpriteResId = resId;
+		}
+		return resId;
+	}
+
+	/**
+	 * Encodes the definition. All numbers are big endian, and each initializer or modifier is
+	 * stored as its type followed by its float and int parameters, each preceded by their count.
+	 *
+	 * @return The encoded definition.
+	 */
+	@NonNull
+	public byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			byte[] sprite = mSprite.getBytes(UTF_8);
+			out.writeShort(sprite.length);
+			out.write(sprite);
+			out.writeInt(mMaxParticles);
+			out.writeInt((int) mTimeToLive);
+			out.writeInt(mParticlesPerSecond);
+			out.writeInt(mEmittingTime);
+			out.writeInt(mOneShotCount);
+			out.writeByte(mEntries.size());
+			for (int i = 0; i < mEntries.size(); i++) {
+				Entry entry = mEntries.get(i);
+				out.writeByte(entry.mType);
+				out.writeByte(entry.mFloats.length);
+				for (float value : entry.mFloats) {
+					out.writeFloat(value);
+				}
+				out.writeByte(entry.mInts.length);
+				for (int value : entry.mInts) {
+					out.writeInt(value);
+				}
+			}
+		}
+		catch (IOException e) {
+			// Cannot happen when writing to memory
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a definition from the current position of a buffer, as encoded by
+	 * {@link #toByteArray()}.
+	 *
+	 * @param buffer The buffer, usually mapped from a file.
+	 * @return The definition.
+	 * @throws IllegalArgumentException If the buffer does not hold a valid definition.
+	 */
+	@NonNull
+	public static EffectDefinition parse(@NonNull ByteBuffer buffer) {
+		try {
+			if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+				throw new IllegalArgumentException("Not an effect definition");
+			}
+			byte[] sprite = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(sprite);
+			EffectDefinition definition = new EffectDefinition(new String(sprite, UTF_8),
+					buffer.getInt(), buffer.getInt());
+			definition.mParticlesPerSecond = buffer.getInt();
+			definition.mEmittingTime = buffer.getInt();
+			definition.mOneShotCount = buffer.getInt();
+			int entryCount = buffer.get() & 0xFF;
+			for (int i = 0; i < entryCount; i++) {
+				int type = buffer.get() & 0xFF;
+				float[] floats = new float[buffer.get() & 0xFF];
+				for (int j = 0; j < floats.length; j++) {
+					floats[j] = buffer.getFloat();
+				}
+				int[] ints = new int[buffer.get() & 0xFF];
+				for (int j = 0; j < ints.length; j++) {
+					ints[j] = buffer.getInt();
+				}
+				definition.add(type, floats, ints);
+			}
+			return definition;
+		}
+		catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated effect definition", e);
+		}
+	}
+}
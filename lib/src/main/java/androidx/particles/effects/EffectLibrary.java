@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.effects;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+/**
+ * Loads {@link EffectDefinition}s from their binary encoding and keeps them in memory, so that
+ * each definition is only read and parsed once.
+ * <p>
+ * Uncompressed assets and files are memory-mapped instead of being copied. Store the effect
+ * assets uncompressed, for instance with {@code aaptOptions { noCompress 'pfx' }}, to benefit
+ * from it.
+ */
+public class EffectLibrary {
+
+	private final AssetManager mAssets;
+	private final HashMap<String, EffectDefinition> mDefinitions = new HashMap<>();
+
+	public EffectLibrary(@NonNull Context context) {
+		mAssets = context.getAssets();
+	}
+
+	/**
+	 * Returns the definition stored in an asset, loading it on first use.
+	 *
+	 * @param path The path of the asset.
+	 * @return The definition.
+	 * @throws IOException If the asset cannot be read.
+	 */
+	@NonNull
+	public synchronized EffectDefinition loadAsset(@NonNull String path) throws IOException {
+		EffectDefinition definition = mDefinitions.get(path);
+		if (definition == null) {
+			definition = parse(path, readAsset(path));
+			mDefinitions.put(path, definition);
+		}
+		return definition;
+	}
+
+	/**
+	 * Returns the definition stored in a file, loading it on first use.
+	 *
+	 * @param file The file.
+	 * @return The definition.
+	 * @throws IOException If the file cannot be read.
+	 */
+	@NonNull
+	public synchronized EffectDefinition loadFile(@NonNull File file) throws IOException {
+		String key = file.getAbsolutePath();
+		EffectDefinition definition = mDefinitions.get(key);
+		if (definition == null) {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				definition = parse(key, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			}
+			finally {
+				in.close();
+			}
+			mDefinitions.put(key, definition);
+		}
+		return definition;
+	}
+
+	/**
+	 * Adds a definition built in code, so that it can be found like loaded ones.
+	 */
+	public synchronized void put(@NonNull String name, @NonNull EffectDefinition definition) {
+		mDefinitions.put(name, definition);
+	}
+
+	/**
+	 * Forgets all the definitions, for instance when memory is low.
+	 */
+	public synchronized void clear() {
+		mDefinitions.clear();
+	}
+
+	private ByteBuffer readAsset(String path) throws IOException {
+		AssetFileDescriptor descriptor;
+		try {
+			descriptor = mAssets.openFd(path);
+		}
+		catch (FileNotFoundException e) {
+			// Compressed assets cannot be mapped, read them instead
+			return readFully(mAssets.open(path));
+		}
+		try {
+			FileChannel channel = descriptor.createInputStream().getChannel();
+			try {
+				// The mapping stays valid once the channel is closed
+				return channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getLength());
+			}
+			finally {
+				channel.close();
+			}
+		}
+		finally {
+			descriptor.close();
+		}
+	}
+
+	private static ByteBuffer readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] chunk = new byte[4096];
+			int count;
+			while ((count = in.read(chunk)) != -1) {
+				bytes.write(chunk, 0, count);
+			}
+			return ByteBuffer.wrap(bytes.toByteArray());
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static EffectDefinition parse(String name, ByteBuffer buffer) throws IOException {
+		try {
+			return EffectDefinition.parse(buffer);
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException("Invalid effect definition " + name, e);
+		}
+	}
+}
@@ -22,12 +22,16 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.particles.Particle;
 
-public class AccelerationInitializer implements ParticleInitializer {
+public class AccelerationInitializer implements BatchParticleInitializer {
 
 	private float mMinValue;
 	private float mMaxValue;
 	private int mMinAngle;
 	private int mMaxAngle;
+	// Cosine and sine of each angle between the bounds, from the lowest
+	private final double[] mCos;
+	private final double[] mSin;
+	private final int mLowestAngle;
 
 	public AccelerationInitializer(float minAcceleration, float maxAcceleration,
 								   @IntRange(from=0, to=360) int minAngle,
@@ -36,18 +40,40 @@ public class AccelerationInitializer implements ParticleInitializer {
 		mMaxValue = maxAcceleration;
 		mMinAngle = minAngle;
 		mMaxAngle = maxAngle;
+		mLowestAngle = Math.min(minAngle, maxAngle);
+		mCos = new double[Math.abs(maxAngle - minAngle) + 1];
+		mSin = new double[mCos.length];
+		for (int i = 0; i < mCos.length; i++) {
+			float angleInRads = (float) ((mLowestAngle + i)*Math.PI/180f);
+			mCos[i] = Math.cos(angleInRads);
+			mSin[i] = Math.sin(angleInRads);
+		}
 	}
 
 	@Override
 	public void initParticle(@NonNull Particle p, @NonNull Random r) {
-		float angle = mMinAngle;
+		int angle = mMinAngle;
 		if (mMaxAngle != mMinAngle) {
 			angle = r.nextInt(mMaxAngle - mMinAngle) + mMinAngle;
 		}
-		float angleInRads = (float) (angle*Math.PI/180f);
 		float value = r.nextFloat()*(mMaxValue-mMinValue)+mMinValue;
-		p.mAccelerationX = (float) (value * Math.cos(angleInRads));
-		p.mAccelerationY = (float) (value * Math.sin(angleInRads));
+		p.mAccelerationX = (float) (value * mCos[angle - mLowestAngle]);
+		p.mAccelerationY = (float) (value * mSin[angle - mLowestAngle]);
 	}
 
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		int angleRange = mMaxAngle - mMinAngle;
+		int first = mMinAngle - mLowestAngle;
+		float valueRange = mMaxValue - mMinValue;
+		double[] cos = mCos;
+		double[] sin = mSin;
+		for (int i = offset; i < offset + count; i++) {
+			int angle = angleRange == 0 ? first : r.nextInt(angleRange) + first;
+			float value = r.nextFloat()*valueRange + mMinValue;
+			Particle p = particles[i];
+			p.mAccelerationX = (float) (value * cos[angle]);
+			p.mAccelerationY = (float) (value * sin[angle]);
+		}
+	}
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.initializers;
+
+import androidx.annotation.NonNull;
+import androidx.particles.Particle;
+
+import java.util.Random;
+
+/**
+ * Runs a per-particle initializer as a {@link BatchParticleInitializer}, one particle at a time.
+ */
+public class BatchInitializerAdapter implements BatchParticleInitializer {
+
+	private final ParticleInitializer mInitializer;
+
+	private BatchInitializerAdapter(@NonNull ParticleInitializer initializer) {
+		mInitializer = initializer;
+	}
+
+	/**
+	 * Returns the initializer itself if it supports batches, an adapter otherwise.
+	 */
+	@NonNull
+	public static BatchParticleInitializer adapt(@NonNull ParticleInitializer initializer) {
+		if (initializer instanceof BatchParticleInitializer) {
+			return (BatchParticleInitializer) initializer;
+		}
+		return new BatchInitializerAdapter(initializer);
+	}
+
+	@Override
+	public void initParticle(@NonNull Particle p, @NonNull Random r) {
+		mInitializer.initParticle(p, r);
+	}
+
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		for (int i = offset; i < offset + count; i++) {
+			mInitializer.initParticle(particles[i], r);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.initializers;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.particles.Particle;
+
+import java.util.Random;
+
+/**
+ * An initializer setting up a contiguous range of particles in one call, so that spawning many
+ * particles at once costs one call per initializer instead of one per particle.
+ * <p>
+ * The built-in initializers implement it. Other initializers are run through a
+ * {@link BatchInitializerAdapter} by the particle system.
+ */
+public interface BatchParticleInitializer extends ParticleInitializer {
+
+	/**
+	 * Initializes particles, in the same way as {@link #initParticle(Particle, Random)} for each
+	 * of them. The values are drawn from {@code r} in the same order, so that both give the same
+	 * particles for the same seed.
+	 *
+	 * @param particles The particles.
+	 * @param offset The index of the first particle to initialize.
+	 * @param count The number of particles to initialize.
+	 * @param r The random number generator of the particle system.
+	 */
+	void initParticles(@NonNull Particle[] particles, @IntRange(from=0) int offset,
+					   @IntRange(from=0) int count, @NonNull Random r);
+}
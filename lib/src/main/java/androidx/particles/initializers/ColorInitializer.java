@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.initializers;
+
+import java.util.Random;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.particles.Particle;
+
+public class ColorInitializer implements BatchParticleInitializer {
+
+	@ColorInt
+	private final int[] mColors;
+
+	/**
+	 * @param colors The colors to choose from, copied.
+	 * @throws IllegalArgumentException If there is no color.
+	 */
+	public ColorInitializer(@NonNull @ColorInt int... colors) {
+		if (colors.length == 0) {
+			throw new IllegalArgumentException("Color array can not be empty");
+		}
+		mColors = colors.clone();
+	}
+
+	@Override
+	public void initParticle(@NonNull Particle p, @NonNull Random r) {
+		p.mColor = mColors[r.nextInt(mColors.length)];
+	}
+
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		int[] colors = mColors;
+		for (int i = offset; i < offset + count; i++) {
+			particles[i].mColor = colors[r.nextInt(colors.length)];
+		}
+	}
+}
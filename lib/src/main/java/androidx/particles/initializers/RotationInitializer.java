@@ -22,7 +22,7 @@ import androidx.particles.Particle;
 
 import java.util.Random;
 
-public class RotationInitializer implements ParticleInitializer {
+public class RotationInitializer implements BatchParticleInitializer {
 
 	private int mMinAngle;
 	private int mMaxAngle;
@@ -38,4 +38,12 @@ public class RotationInitializer implements ParticleInitializer {
 		p.mInitialRotation = (mMinAngle == mMaxAngle) ? mMinAngle : r.nextInt(mMaxAngle - mMinAngle) + mMinAngle;
 	}
 
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		int min = mMinAngle;
+		int range = mMaxAngle - mMinAngle;
+		for (int i = offset; i < offset + count; i++) {
+			particles[i].mInitialRotation = range == 0 ? min : r.nextInt(range) + min;
+		}
+	}
 }
@@ -21,7 +21,7 @@ import java.util.Random;
 import androidx.annotation.NonNull;
 import androidx.particles.Particle;
 
-public class RotationSpeedInitializer implements ParticleInitializer {
+public class RotationSpeedInitializer implements BatchParticleInitializer {
 
 	private float mMinRotationSpeed;
 	private float mMaxRotationSpeed;
@@ -37,4 +37,12 @@ public class RotationSpeedInitializer implements ParticleInitializer {
 		p.mRotationSpeed = rotationSpeed;
 	}
 
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		float range = mMaxRotationSpeed - mMinRotationSpeed;
+		float min = mMinRotationSpeed;
+		for (int i = offset; i < offset + count; i++) {
+			particles[i].mRotationSpeed = r.nextFloat()*range + min;
+		}
+	}
 }
@@ -21,7 +21,7 @@ import java.util.Random;
 import androidx.annotation.NonNull;
 import androidx.particles.Particle;
 
-public class ScaleInitializer implements ParticleInitializer {
+public class ScaleInitializer implements BatchParticleInitializer {
 
 	private float mMaxScale;
 	private float mMinScale;
@@ -37,4 +37,12 @@ public class ScaleInitializer implements ParticleInitializer {
 		p.mScale = scale;
 	}
 
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		float range = mMaxScale - mMinScale;
+		float min = mMinScale;
+		for (int i = offset; i < offset + count; i++) {
+			particles[i].mScale = r.nextFloat()*range + min;
+		}
+	}
 }
@@ -21,7 +21,7 @@ import java.util.Random;
 import androidx.annotation.NonNull;
 import androidx.particles.Particle;
 
-public class SpeedByComponentsInitializer implements ParticleInitializer {
+public class SpeedByComponentsInitializer implements BatchParticleInitializer {
 
 	private float mMinSpeedX;
 	private float mMaxSpeedX;
@@ -41,4 +41,14 @@ public class SpeedByComponentsInitializer implements ParticleInitializer {
 		p.mSpeedY = r.nextFloat()*(mMaxSpeedY-mMinSpeedY)+mMinSpeedY;
 	}
 
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		float rangeX = mMaxSpeedX - mMinSpeedX;
+		float rangeY = mMaxSpeedY - mMinSpeedY;
+		for (int i = offset; i < offset + count; i++) {
+			Particle p = particles[i];
+			p.mSpeedX = r.nextFloat()*rangeX + mMinSpeedX;
+			p.mSpeedY = r.nextFloat()*rangeY + mMinSpeedY;
+		}
+	}
 }
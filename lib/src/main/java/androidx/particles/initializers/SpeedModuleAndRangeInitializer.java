@@ -22,12 +22,15 @@ import androidx.particles.Particle;
 
 import java.util.Random;
 
-public class SpeedModuleAndRangeInitializer implements ParticleInitializer {
+public class SpeedModuleAndRangeInitializer implements BatchParticleInitializer {
 
 	private float mSpeedMin;
 	private float mSpeedMax;
 	private int mMinAngle;
 	private int mMaxAngle;
+	// Cosine and sine of each angle of the range, from mMinAngle
+	private final double[] mCos;
+	private final double[] mSin;
 
 	public SpeedModuleAndRangeInitializer(float speedMin, float speedMax,
 										  @IntRange(from=0, to=360) int minAngle,
@@ -49,6 +52,13 @@ public class SpeedModuleAndRangeInitializer implements ParticleInitializer {
 			mMinAngle = mMaxAngle;
 			mMaxAngle = tmp;
 		}
+		mCos = new double[mMaxAngle - mMinAngle + 1];
+		mSin = new double[mCos.length];
+		for (int i = 0; i < mCos.length; i++) {
+			double angleInRads = Math.toRadians(mMinAngle + i);
+			mCos[i] = Math.cos(angleInRads);
+			mSin[i] = Math.sin(angleInRads);
+		}
 	}
 
 	@Override
@@ -61,10 +71,25 @@ public class SpeedModuleAndRangeInitializer implements ParticleInitializer {
 		else {
 			angle = r.nextInt(mMaxAngle - mMinAngle) + mMinAngle;
 		}
-		double angleInRads = Math.toRadians(angle);
-		p.mSpeedX = (float) (speed * Math.cos(angleInRads));
-		p.mSpeedY = (float) (speed * Math.sin(angleInRads));
+		p.mSpeedX = (float) (speed * mCos[angle - mMinAngle]);
+		p.mSpeedY = (float) (speed * mSin[angle - mMinAngle]);
 		p.mInitialRotation = angle + 90;
 	}
 
+	@Override
+	public void initParticles(@NonNull Particle[] particles, int offset, int count, @NonNull Random r) {
+		float speedRange = mSpeedMax - mSpeedMin;
+		int angleRange = mMaxAngle - mMinAngle;
+		double[] cos = mCos;
+		double[] sin = mSin;
+		for (int i = offset; i < offset + count; i++) {
+			float speed = r.nextFloat()*speedRange + mSpeedMin;
+			int angle = angleRange == 0 ? 0 : r.nextInt(angleRange);
+			Particle p = particles[i];
+			p.mSpeedX = (float) (speed * cos[angle]);
+			p.mSpeedY = (float) (speed * sin[angle]);
+			p.mInitialRotation = angle + mMinAngle + 90;
+		}
+	}
+
 }
@@ -19,7 +19,7 @@ package androidx.particles.modifiers;
 import androidx.annotation.NonNull;
 import androidx.particles.Particle;
 
-public class AccelerationModifier implements ParticleModifier {
+public class AccelerationModifier implements BatchParticleModifier {
 
 	private float mVelocityX;
 	private float mVelocityY;
@@ -37,4 +37,17 @@ public class AccelerationModifier implements ParticleModifier {
 		particle.mCurrentY += mVelocityY*milliseconds*milliseconds;
 	}
 
+	@Override
+	public void applyBatch(@NonNull ParticleBatch batch) {
+		long[] ages = batch.mAge;
+		float[] x = batch.mX;
+		float[] y = batch.mY;
+		float velocityX = mVelocityX;
+		float velocityY = mVelocityY;
+		for (int i = 0; i < batch.mCount; i++) {
+			float age = ages[i];
+			x[i] += velocityX*age*age;
+			y[i] += velocityY*age*age;
+		}
+	}
 }
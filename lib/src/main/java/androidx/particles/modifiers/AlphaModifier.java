@@ -24,7 +24,7 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.particles.Particle;
 
-public class AlphaModifier implements ParticleModifier {
+public class AlphaModifier implements BatchParticleModifier {
 
 	private int mStartValue;
 	private int mEndValue;
@@ -33,6 +33,7 @@ public class AlphaModifier implements ParticleModifier {
 	private float mDuration;
 	private float mValueIncrement;
 	private Interpolator mInterpolator;
+	private boolean mLinear;
 
 	public AlphaModifier(@IntRange(from=0, to=255) int startValue, @IntRange(from=0, to=255) int endValue,
 						 long startMillis, long endMillis, @NonNull Interpolator interpolator) {
@@ -43,6 +44,7 @@ public class AlphaModifier implements ParticleModifier {
 		mDuration = mEndTime - mStartTime;
 		mValueIncrement = mEndValue - mStartValue;
 		mInterpolator = interpolator;
+		mLinear = interpolator.getClass() == LinearInterpolator.class;
 	}
 	
 	public AlphaModifier(@IntRange(from=0, to=255) int startValue, @IntRange(from=0, to=255) int endValue,
@@ -68,17 +70,47 @@ public class AlphaModifier implements ParticleModifier {
 
 	@Override
 	public void apply(@NonNull Particle particle, long milliseconds) {
+		particle.mAlpha = getAlpha(milliseconds);
+	}
+
+	private int getAlpha(long milliseconds) {
 		if (milliseconds < mStartTime) {
-			particle.mAlpha = mStartValue;
+			return mStartValue;
 		}
 		else if (milliseconds > mEndTime) {
-			particle.mAlpha = mEndValue;
+			return mEndValue;
 		}
-		else {	
+		else {
 			float interpolatedValue = mInterpolator.getInterpolation((milliseconds- mStartTime)*1f/mDuration);
-			int newAlphaValue = (int) (mStartValue + mValueIncrement*interpolatedValue);
-			particle.mAlpha = newAlphaValue;
-		}		
+			return (int) (mStartValue + mValueIncrement*interpolatedValue);
+		}
 	}
 
+	@Override
+	public void applyBatch(@NonNull ParticleBatch batch) {
+		long[] ages = batch.mAge;
+		int[] alphas = batch.mAlpha;
+		int count = batch.mCount;
+		if (!mLinear) {
+			for (int i = 0; i < count; i++) {
+				alphas[i] = getAlpha(ages[i]);
+			}
+			return;
+		}
+		// Same as getAlpha() with the interpolation inlined
+		long startTime = mStartTime;
+		long endTime = mEndTime;
+		for (int i = 0; i < count; i++) {
+			long age = ages[i];
+			if (age < startTime) {
+				alphas[i] = mStartValue;
+			}
+			else if (age > endTime) {
+				alphas[i] = mEndValue;
+			}
+			else {
+				alphas[i] = (int) (mStartValue + mValueIncrement*((age - startTime)*1f/mDuration));
+			}
+		}
+	}
 }
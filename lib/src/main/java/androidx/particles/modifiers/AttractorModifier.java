@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.particles.Particle;
+import androidx.particles.ViewAnchor;
+
+/**
+ * Pulls particles towards, or pushes them away from, a set of points, line segments and views.
+ * <p>
+ * Every source has a strength, negative for repulsors, and a cutoff radius beyond which it has no
+ * effect. Point and line sources are sorted into a coarse grid of cells, so each particle only
+ * looks at the few sources that can reach its cell, however many sources there are. View sources
+ * follow a {@link ViewAnchor}, whose cached position is read once per particle.
+ */
+public class AttractorModifier implements ParticleModifier {
+
+	// Per static source: x1, y1, x2, y2, strength, radius. Points have x1 == x2 and y1 == y2.
+	private static final int STRIDE = 6;
+
+	private final float mLeft;
+	private final float mTop;
+	private final float mCellSize;
+	private final int mColumns;
+	private final int mRows;
+
+	private float[] mStaticSources = new float[0];
+	private int mStaticSourceCount;
+	private ViewAnchor[] mAnchors = new ViewAnchor[0];
+	private float[] mAnchorSources = new float[0];
+
+	// Replaced as a whole when sources are added, so that updates never see a partial change
+	private volatile Sources mSources = new Sources(new float[0], new int[0], new int[0],
+			new ViewAnchor[0], new float[0]);
+
+	private static final class Sources {
+
+		final float[] mStatic;
+		// Start of each cell in mCellSources, with one extra entry marking the end of the last cell
+		final int[] mCellStarts;
+		final int[] mCellSources;
+		final ViewAnchor[] mAnchors;
+		// Per view source: strength, radius
+		final float[] mAnchorData;
+
+		Sources(float[] statics, int[] cellStarts, int[] cellSources, ViewAnchor[] anchors,
+				float[] anchorData) {
+			mStatic = statics;
+			mCellStarts = cellStarts;
+			mCellSources = cellSources;
+			mAnchors = anchors;
+			mAnchorData = anchorData;
+		}
+	}
+
+	/**
+	 * Creates a modifier without sources.
+	 *
+	 * @param left The left edge of the area where particles move.
+	 * @param top The top edge of the area where particles move.
+	 * @param width The width of the area where particles move.
+	 * @param height The height of the area where particles move.
+	 * @param cellSize The size of the cells sources are sorted into, usually about the cutoff radius.
+	 */
+	public AttractorModifier(@Px float left, @Px float top, @Px float width, @Px float height,
+							 @Px float cellSize) {
+		mLeft = left;
+		mTop = top;
+		mCellSize = cellSize;
+		mColumns = Math.max(1, (int) Math.ceil(width / cellSize));
+		mRows = Math.max(1, (int) Math.ceil(height / cellSize));
+	}
+
+	/**
+	 * Adds a point source.
+	 *
+	 * @param x The horizontal position of the point.
+	 * @param y The vertical position of the point.
+	 * @param strength The acceleration towards the point in pixels per square millisecond, negative to
+	 *                 repel particles. It decreases linearly to 0 at the cutoff radius.
+	 * @param radius The cutoff radius.
+	 * @return This.
+	 */
+	@NonNull
+	public AttractorModifier addPoint(@Px float x, @Px float y, float strength, @Px float radius) {
+		return addLine(x, y, x, y, strength, radius);
+	}
+
+	/**
+	 * Adds a line segment source, attracting particles towards its closest point.
+	 *
+	 * @param x1 The horizontal position of the start of the segment.
+	 * @param y1 The vertical position of the start of the segment.
+	 * @param x2 The horizontal position of the end of the segment.
+	 * @param y2 The vertical position of the end of the segment.
+	 * @param strength The acceleration towards the segment in pixels per square millisecond, negative
+	 *                 to repel particles. It decreases linearly to 0 at the cutoff radius.
+	 * @param radius The cutoff radius.
+	 * @return This.
+	 */
+	@NonNull
+	public synchronized AttractorModifier addLine(@Px float x1, @Px float y1, @Px float x2, @Px float y2,
+												  float strength, @Px float radius) {
+		if (mStaticSources.length < (mStaticSourceCount + 1) * STRIDE) {
+			float[] sources = new float[Math.max(4, mStaticSourceCount * 2) * STRIDE];
+			System.arraycopy(mStaticSources, 0, sources, 0, mStaticSourceCount * STRIDE);
+			mStaticSources = sources;
+		}
+		int index = mStaticSourceCount * STRIDE;
+		mStaticSources[index] = x1;
+		mStaticSources[index + 1] = y1;
+		mStaticSources[index + 2] = x2;
+		mStaticSources[index + 3] = y2;
+		mStaticSources[index + 4] = strength;
+		mStaticSources[index + 5] = radius;
+		mStaticSourceCount++;
+		publishSources();
+		return this;
+	}
+
+	/**
+	 * Adds a source following the center of a view, for example to make particles fly into an icon.
+	 *
+	 * @param anchor The anchor of the view, relative to the parent of the particle system.
+	 * @param strength The acceleration towards the view in pixels per square millisecond, negative to
+	 *                 repel particles. It decreases linearly to 0 at the cutoff radius.
+	 * @param radius The cutoff radius.
+	 * @return This.
+	 */
+	@NonNull
+	public synchronized AttractorModifier addView(@NonNull ViewAnchor anchor, float strength,
+												  @Px float radius) {
+		int count = mAnchors.length;
+		ViewAnchor[] anchors = new ViewAnchor[count + 1];
+		float[] anchorSources = new float[(count + 1) * 2];
+		System.arraycopy(mAnchors, 0, anchors, 0, count);
+		System.arraycopy(mAnchorSources, 0, anchorSources, 0, count * 2);
+		anchors[count] = anchor;
+		anchorSources[count * 2] = strength;
+		anchorSources[count * 2 + 1] = radius;
+		mAnchors = anchors;
+		mAnchorSources = anchorSources;
+		publishSources();
+		return this;
+	}
+
+	/**
+	 * Removes all sources.
+	 */
+	public synchronized void clear() {
+		mStaticSourceCount = 0;
+		mAnchors = new ViewAnchor[0];
+		mAnchorSources = new float[0];
+		publishSources();
+	}
+
+	// Sorts the static sources into the cells their cutoff radius reaches
+	private void publishSources() {
+		int cellCount = mColumns * mRows;
+		int[] cellRanges = new int[mStaticSourceCount * 4];
+		int[] cellStarts = new int[cellCount + 1];
+		for (int i = 0; i < mStaticSourceCount; i++) {
+			int index = i * STRIDE;
+			float radius = mStaticSources[index + 5];
+			int range = i * 4;
+			cellRanges[range] = getColumn(Math.min(mStaticSources[index], mStaticSources[index + 2]) - radius);
+			cellRanges[range + 1] = getColumn(Math.max(mStaticSources[index], mStaticSources[index + 2]) + radius);
+			cellRanges[range + 2] = getRow(Math.min(mStaticSources[index + 1], mStaticSources[index + 3]) - radius);
+			cellRanges[range + 3] = getRow(Math.max(mStaticSources[index + 1], mStaticSources[index + 3]) + radius);
+			for (int row = cellRanges[range + 2]; row <= cellRanges[range + 3]; row++) {
+				for (int column = cellRanges[range]; column <= cellRanges[range + 1]; column++) {
+					cellStarts[row * mColumns + column + 1]++;
+				}
+			}
+		}
+		for (int cell = 0; cell < cellCount; cell++) {
+			cellStarts[cell + 1] += cellStarts[cell];
+		}
+		int[] cellSources = new int[cellStarts[cellCount]];
+		int[] cursors = new int[cellCount];
+		System.arraycopy(cellStarts, 0, cursors, 0, cellCount);
+		for (int i = 0; i < mStaticSourceCount; i++) {
+			int range = i * 4;
+			for (int row = cellRanges[range + 2]; row <= cellRanges[range + 3]; row++) {
+				for (int column = cellRanges[range]; column <= cellRanges[range + 1]; column++) {
+					cellSources[cursors[row * mColumns + column]++] = i * STRIDE;
+				}
+			}
+		}
+		float[] statics = new float[mStaticSourceCount * STRIDE];
+		System.arraycopy(mStaticSources, 0, statics, 0, statics.length);
+		mSources = new Sources(statics, cellStarts, cellSources, mAnchors, mAnchorSources);
+	}
+
+	private int getColumn(float x) {
+		return (int) Math.min(mColumns - 1, Math.max(0, Math.floor((x - mLeft) / mCellSize)));
+	}
+
+	private int getRow(float y) {
+		return (int) Math.min(mRows - 1, Math.max(0, Math.floor((y - mTop) / mCellSize)));
+	}
+
+	@Override
+	public void apply(@NonNull Particle particle, long milliseconds) {
+		long delta = particle.getFrameDelta();
+		if (delta == 0) {
+			return;
+		}
+		Sources sources = mSources;
+		float x = particle.getCenterX();
+		float y = particle.getCenterY();
+		float accelerationX = 0;
+		float accelerationY = 0;
+
+		int cell = getRow(y) * mColumns + getColumn(x);
+		float[] statics = sources.mStatic;
+		for (int i = sources.mCellStarts[cell]; i < sources.mCellStarts[cell + 1]; i++) {
+			int index = sources.mCellSources[i];
+			float x1 = statics[index];
+			float y1 = statics[index + 1];
+			float segmentX = statics[index + 2] - x1;
+			float segmentY = statics[index + 3] - y1;
+			// Closest point of the segment
+			float lengthSquared = segmentX*segmentX + segmentY*segmentY;
+			float t = 0;
+			if (lengthSquared > 0) {
+				t = Math.min(1, Math.max(0, ((x - x1)*segmentX + (y - y1)*segmentY) / lengthSquared));
+			}
+			float dx = x1 + segmentX*t - x;
+			float dy = y1 + segmentY*t - y;
+			float radius = statics[index + 5];
+			float distance = (float) Math.sqrt(dx*dx + dy*dy);
+			if (distance > 0 && distance < radius) {
+				float acceleration = statics[index + 4] * (1 - distance/radius) / distance;
+				accelerationX += dx*acceleration;
+				accelerationY += dy*acceleration;
+			}
+		}
+
+		ViewAnchor[] anchors = sources.mAnchors;
+		for (int i = 0; i < anchors.length; i++) {
+			float dx = anchors[i].getCenterX() - x;
+			float dy = anchors[i].getCenterY() - y;
+			float radius = sources.mAnchorData[i*2 + 1];
+			float distance = (float) Math.sqrt(dx*dx + dy*dy);
+			if (distance > 0 && distance < radius) {
+				float acceleration = sources.mAnchorData[i*2] * (1 - distance/radius) / distance;
+				accelerationX += dx*acceleration;
+				accelerationY += dy*acceleration;
+			}
+		}
+
+		if (accelerationX != 0 || accelerationY != 0) {
+			particle.addVelocity(accelerationX*delta, accelerationY*delta);
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.NonNull;
+import androidx.particles.Particle;
+
+/**
+ * Runs a per-particle modifier as a {@link BatchParticleModifier}. Each particle is given its
+ * state from the batch before the modifier is applied, and the batch is updated from the particle
+ * afterwards.
+ */
+public class BatchModifierAdapter implements BatchParticleModifier {
+
+	private final ParticleModifier mModifier;
+
+	private BatchModifierAdapter(@NonNull ParticleModifier modifier) {
+		mModifier = modifier;
+	}
+
+	/**
+	 * Returns the modifier itself if it supports batches, an adapter otherwise.
+	 */
+	@NonNull
+	public static BatchParticleModifier adapt(@NonNull ParticleModifier modifier) {
+		if (modifier instanceof BatchParticleModifier) {
+			return (BatchParticleModifier) modifier;
+		}
+		return new BatchModifierAdapter(modifier);
+	}
+
+	@Override
+	public void apply(@NonNull Particle particle, long milliseconds) {
+		mModifier.apply(particle, milliseconds);
+	}
+
+	@Override
+	public void applyBatch(@NonNull ParticleBatch batch) {
+		for (int i = 0; i < batch.mCount; i++) {
+			batch.store(i);
+			mModifier.apply(batch.mParticles[i], batch.mAge[i]);
+			batch.load(i);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A modifier updating all the active particles of a particle system in one call, by looping over
+ * the primitive arrays of a {@link ParticleBatch} instead of being called for each particle.
+ * <p>
+ * {@link AlphaModifier}, {@link ScaleModifier} and {@link AccelerationModifier} implement it.
+ * Other modifiers are run through a {@link BatchModifierAdapter} by the particle system.
+ */
+public interface BatchParticleModifier extends ParticleModifier {
+
+	/**
+	 * Modifies the particles of a batch, in the same way as
+	 * {@link #apply(androidx.particles.Particle, long)} for each of them.
+	 *
+	 * @param batch The particles, with their ages.
+	 */
+	void applyBatch(@NonNull ParticleBatch batch);
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.particles.Particle;
+import androidx.particles.SpatialGrid;
+
+/**
+ * Pulls particles towards the center of the particles around them, making them flock together.
+ */
+public class CohesionModifier implements SpatialModifier {
+
+	private static final int MAX_NEIGHBOURS = 32;
+
+	private final float mRadius;
+	private final float mStrength;
+	private final int[] mNeighbours = new int[MAX_NEIGHBOURS];
+	private SpatialGrid mGrid;
+
+	/**
+	 * @param radius The distance in pixels under which particles attract each other.
+	 * @param strength The acceleration in pixels per square millisecond of a particle that is
+	 *                 {@code radius} away from the center of its neighbours.
+	 */
+	public CohesionModifier(@Px float radius, float strength) {
+		mRadius = radius;
+		mStrength = strength;
+	}
+
+	@Override
+	public float getRadius() {
+		return mRadius;
+	}
+
+	@Override
+	public void prepare(@NonNull SpatialGrid grid) {
+		mGrid = grid;
+	}
+
+	@Override
+	public void apply(@NonNull Particle particle, long milliseconds) {
+		long delta = particle.getFrameDelta();
+		if (mGrid == null || delta == 0) {
+			return;
+		}
+		float x = particle.getCenterX();
+		float y = particle.getCenterY();
+		float sumX = 0;
+		float sumY = 0;
+		int neighbours = 0;
+		int count = mGrid.query(x, y, mRadius, mNeighbours);
+		for (int i = 0; i < count; i++) {
+			int neighbour = mNeighbours[i];
+			if (mGrid.getParticle(neighbour) != particle) {
+				sumX += mGrid.getX(neighbour);
+				sumY += mGrid.getY(neighbour);
+				neighbours++;
+			}
+		}
+		if (neighbours > 0) {
+			float accelerationX = (sumX/neighbours - x) / mRadius * mStrength;
+			float accelerationY = (sumY/neighbours - y) / mRadius * mStrength;
+			particle.addVelocity(accelerationX*delta, accelerationY*delta);
+		}
+	}
+
+}
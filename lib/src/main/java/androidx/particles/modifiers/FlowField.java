@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+
+/**
+ * A precomputed grid of 2D vectors over an area, sampled with bilinear interpolation.
+ * <p>
+ * The vectors are stored interleaved in a single {@code float[]}, so sampling a position takes
+ * eight array reads regardless of how the vectors were computed. The grid can be filled from a
+ * {@link Function} once, refilled a few rows at a time to animate it, or set node by node.
+ * <p>
+ * The field is not thread-safe. Once it is used by a particle system, only change it from the
+ * thread updating the particles, for instance from a modifier, as {@link TurbulenceModifier} does.
+ *
+ * @see FlowFieldModifier
+ */
+public class FlowField {
+
+	/**
+	 * Computes the vector of the field at a position.
+	 */
+	public interface Function {
+
+		/**
+		 * @param x The horizontal position in pixels.
+		 * @param y The vertical position in pixels.
+		 * @param out The array receiving the vector, {@code x} at index 0 and {@code y} at index 1.
+		 */
+		void evaluate(float x, float y, @NonNull float[] out);
+	}
+
+	private final float mLeft;
+	private final float mTop;
+	private final float mCellWidth;
+	private final float mCellHeight;
+	private final int mColumns;
+	private final int mRows;
+	private final float[] mVectors;
+	private final float[] mScratch = new float[2];
+
+	/**
+	 * Creates a field of zero vectors.
+	 *
+	 * @param left The left edge of the area covered by the field.
+	 * @param top The top edge of the area covered by the field.
+	 * @param width The width of the area covered by the field.
+	 * @param height The height of the area covered by the field.
+	 * @param columns The number of nodes per row, at least 2.
+	 * @param rows The number of nodes per column, at least 2.
+	 */
+	public FlowField(@Px float left, @Px float top, @Px float width, @Px float height,
+					 @IntRange(from=2) int columns, @IntRange(from=2) int rows) {
+		if (columns < 2 || rows < 2) {
+			throw new IllegalArgumentException("A flow field needs at least 2 columns and 2 rows");
+		}
+		mLeft = left;
+		mTop = top;
+		mColumns = columns;
+		mRows = rows;
+		mCellWidth = width / (columns - 1);
+		mCellHeight = height / (rows - 1);
+		mVectors = new float[columns * rows * 2];
+	}
+
+	public int getColumns() {
+		return mColumns;
+	}
+
+	public int getRows() {
+		return mRows;
+	}
+
+	/**
+	 * Sets the vector of a single node.
+	 */
+	public void set(int column, int row, float x, float y) {
+		int index = (row * mColumns + column) * 2;
+		mVectors[index] = x;
+		mVectors[index + 1] = y;
+	}
+
+	/**
+	 * Fills every node of the field from a function.
+	 *
+	 * @param function The function to evaluate at the position of each node.
+	 */
+	public void fill(@NonNull Function function) {
+		fillRows(function, 0, mRows);
+	}
+
+	/**
+	 * Fills some rows of the field from a function. Refilling a few rows per update spreads the
+	 * cost of animating a field over several frames.
+	 *
+	 * @param function The function to evaluate at the position of each node.
+	 * @param firstRow The first row to fill.
+	 * @param rowCount The number of rows to fill, wrapping around after the last row.
+	 */
+	public void fillRows(@NonNull Function function, int firstRow, int rowCount) {
+		for (int i = 0; i < rowCount && i < mRows; i++) {
+			int row = (firstRow + i) % mRows;
+			float y = mTop + row * mCellHeight;
+			for (int column = 0; column < mColumns; column++) {
+				function.evaluate(mLeft + column * mCellWidth, y, mScratch);
+				set(column, row, mScratch[0], mScratch[1]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the horizontal component of the field at a position. Positions outside of the field
+	 * are clamped to its edges.
+	 */
+	public float sampleX(@Px float x, @Px float y) {
+		return sample(x, y, 0);
+	}
+
+	/**
+	 * Returns the vertical component of the field at a position. Positions outside of the field
+	 * are clamped to its edges.
+	 */
+	public float sampleY(@Px float x, @Px float y) {
+		return sample(x, y, 1);
+	}
+
+	private float sample(float x, float y, int component) {
+		float gridX = Math.min(Math.max((x - mLeft) / mCellWidth, 0), mColumns - 1);
+		float gridY = Math.min(Math.max((y - mTop) / mCellHeight, 0), mRows - 1);
+		int column = Math.min((int) gridX, mColumns - 2);
+		int row = Math.min((int) gridY, mRows - 2);
+		float fx = gridX - column;
+		float fy = gridY - row;
+		int topLeft = (row * mColumns + column) * 2 + component;
+		int bottomLeft = topLeft + mColumns * 2;
+		float top = mVectors[topLeft] + (mVectors[topLeft + 2] - mVectors[topLeft]) * fx;
+		float bottom = mVectors[bottomLeft] + (mVectors[bottomLeft + 2] - mVectors[bottomLeft]) * fx;
+		return top + (bottom - top) * fy;
+	}
+}
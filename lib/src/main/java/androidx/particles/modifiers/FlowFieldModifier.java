@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.NonNull;
+import androidx.particles.Particle;
+
+/**
+ * Moves particles along a {@link FlowField}, to create wind, swirls or funnels. The field is
+ * sampled at the center of each particle.
+ */
+public class FlowFieldModifier implements ParticleModifier {
+
+	/**
+	 * The vectors of the field are accelerations in pixels per square millisecond.
+	 */
+	public static final int MODE_FORCE = 0;
+	/**
+	 * The vectors of the field are velocities in pixels per millisecond the particles are steered to.
+	 */
+	public static final int MODE_VELOCITY = 1;
+
+	private final FlowField mField;
+	private final int mMode;
+	private final float mStrength;
+
+	/**
+	 * @param field The flow field.
+	 * @param mode Either {@link #MODE_FORCE} or {@link #MODE_VELOCITY}.
+	 * @param strength In force mode, a factor applied to the accelerations. In velocity mode, the
+	 *                 fraction of the difference to the field velocity the particles catch up per
+	 *                 millisecond.
+	 */
+	public FlowFieldModifier(@NonNull FlowField field, int mode, float strength) {
+		mField = field;
+		mMode = mode;
+		mStrength = strength;
+	}
+
+	@Override
+	public void apply(@NonNull Particle particle, long milliseconds) {
+		long delta = particle.getFrameDelta();
+		if (delta == 0) {
+			return;
+		}
+		float x = particle.getCenterX();
+		float y = particle.getCenterY();
+		float fieldX = mField.sampleX(x, y);
+		float fieldY = mField.sampleY(x, y);
+		if (mMode == MODE_FORCE) {
+			particle.addVelocity(fieldX*mStrength*delta, fieldY*mStrength*delta);
+		}
+		else {
+			float steering = Math.min(1f, mStrength*delta);
+			particle.addVelocity((fieldX - particle.getVelocityX())*steering,
+					(fieldY - particle.getVelocityY())*steering);
+		}
+	}
+
+}
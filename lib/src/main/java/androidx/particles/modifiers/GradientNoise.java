@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import java.util.Random;
+
+/**
+ * Three-dimensional gradient noise, using precomputed permutation and gradient tables.
+ * <p>
+ * The third dimension is usually the time, which animates a two-dimensional noise smoothly.
+ * Returned values are roughly in the {@code [-1, 1]} range.
+ */
+public class GradientNoise {
+
+	private static final int TABLE_SIZE = 256;
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+	// Doubled to avoid wrapping the indices when hashing
+	private final int[] mPermutation = new int[TABLE_SIZE * 2];
+	// Random unit vectors, interleaved x, y, z
+	private final float[] mGradients = new float[TABLE_SIZE * 3];
+
+	public GradientNoise(long seed) {
+		Random random = new Random(seed);
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			mPermutation[i] = i;
+		}
+		for (int i = TABLE_SIZE - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = mPermutation[i];
+			mPermutation[i] = mPermutation[j];
+			mPermutation[j] = tmp;
+		}
+		System.arraycopy(mPermutation, 0, mPermutation, TABLE_SIZE, TABLE_SIZE);
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			// Uniformly distributed on the unit sphere
+			float z = random.nextFloat()*2 - 1;
+			double angle = random.nextFloat()*2*Math.PI;
+			float radius = (float) Math.sqrt(1 - z*z);
+			mGradients[i*3] = (float) (radius * Math.cos(angle));
+			mGradients[i*3 + 1] = (float) (radius * Math.sin(angle));
+			mGradients[i*3 + 2] = z;
+		}
+	}
+
+	/**
+	 * Returns the noise at a position.
+	 */
+	public float noise(float x, float y, float z) {
+		int xFloor = floor(x);
+		int yFloor = floor(y);
+		int zFloor = floor(z);
+		float fx = x - xFloor;
+		float fy = y - yFloor;
+		float fz = z - zFloor;
+		int xi = xFloor & TABLE_MASK;
+		int yi = yFloor & TABLE_MASK;
+		int zi = zFloor & TABLE_MASK;
+
+		int[] p = mPermutation;
+		int a = p[xi] + yi;
+		int b = p[xi + 1] + yi;
+		int aa = p[a] + zi;
+		int ab = p[a + 1] + zi;
+		int ba = p[b] + zi;
+		int bb = p[b + 1] + zi;
+
+		float u = fade(fx);
+		float v = fade(fy);
+		float w = fade(fz);
+		float x1 = lerp(u, dot(p[aa], fx, fy, fz), dot(p[ba], fx - 1, fy, fz));
+		float x2 = lerp(u, dot(p[ab], fx, fy - 1, fz), dot(p[bb], fx - 1, fy - 1, fz));
+		float x3 = lerp(u, dot(p[aa + 1], fx, fy, fz - 1), dot(p[ba + 1], fx - 1, fy, fz - 1));
+		float x4 = lerp(u, dot(p[ab + 1], fx, fy - 1, fz - 1), dot(p[bb + 1], fx - 1, fy - 1, fz - 1));
+		return lerp(w, lerp(v, x1, x2), lerp(v, x3, x4));
+	}
+
+	/**
+	 * Returns the sum of several octaves of noise, each with double the frequency and half the
+	 * amplitude of the previous one, normalized to the range of a single octave.
+	 */
+	public float fractal(float x, float y, float z, int octaves) {
+		float sum = 0;
+		float amplitude = 1;
+		float totalAmplitude = 0;
+		for (int i = 0; i < octaves; i++) {
+			sum += noise(x, y, z) * amplitude;
+			totalAmplitude += amplitude;
+			amplitude *= 0.5f;
+			x *= 2;
+			y *= 2;
+			z *= 2;
+		}
+		return sum / totalAmplitude;
+	}
+
+	private float dot(int hash, float x, float y, float z) {
+		int index = (hash & TABLE_MASK) * 3;
+		return mGradients[index]*x + mGradients[index + 1]*y + mGradients[index + 2]*z;
+	}
+
+	private static int floor(float value) {
+		int i = (int) value;
+		return value < i ? i - 1 : i;
+	}
+
+	private static float fade(float t) {
+		return t * t * t * (t * (t * 6 - 15) + 10);
+	}
+
+	private static float lerp(float t, float a, float b) {
+		return a + t * (b - a);
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.NonNull;
+import androidx.particles.Particle;
+
+/**
+ * The state of the active particles of a particle system, laid out in parallel primitive arrays
+ * for {@link BatchParticleModifier}s.
+ * <p>
+ * Index {@code i} of every array describes the particle {@code mParticles[i]}, for {@code i}
+ * below {@link #mCount}. The arrays are written back to the particles after all modifiers have
+ * run, so modifiers must read and write the arrays instead of the particles.
+ */
+public final class ParticleBatch {
+
+	public int mCount;
+	public Particle[] mParticles = new Particle[0];
+	/** The age of each particle in milliseconds. */
+	public long[] mAge = new long[0];
+	public float[] mX = new float[0];
+	public float[] mY = new float[0];
+	public float[] mScale = new float[0];
+	public int[] mAlpha = new int[0];
+
+	/**
+	 * Empties the batch.
+	 */
+	public void clear() {
+		mCount = 0;
+	}
+
+	/**
+	 * Appends a particle to the batch, with its current state.
+	 */
+	public void add(@NonNull Particle particle) {
+		if (mCount == mParticles.length) {
+			grow();
+		}
+		mParticles[mCount] = particle;
+		load(mCount);
+		mCount++;
+	}
+
+	private void grow() {
+		int capacity = Math.max(16, mParticles.length * 2);
+		Particle[] particles = new Particle[capacity];
+		long[] age = new long[capacity];
+		float[] x = new float[capacity];
+		float[] y = new float[capacity];
+		float[] scale = new float[capacity];
+		int[] alpha = new int[capacity];
+		System.arraycopy(mParticles, 0, particles, 0, mCount);
+		System.arraycopy(mAge, 0, age, 0, mCount);
+		System.arraycopy(mX, 0, x, 0, mCount);
+		System.arraycopy(mY, 0, y, 0, mCount);
+		System.arraycopy(mScale, 0, scale, 0, mCount);
+		System.arraycopy(mAlpha, 0, alpha, 0, mCount);
+		mParticles = particles;
+		mAge = age;
+		mX = x;
+		mY = y;
+		mScale = scale;
+		mAlpha = alpha;
+	}
+
+	/**
+	 * Reads the state of the particle at the given index into the arrays.
+	 */
+	public void load(int index) {
+		Particle particle = mParticles[index];
+		mAge[index] = particle.getAge();
+		mX[index] = particle.mCurrentX;
+		mY[index] = particle.mCurrentY;
+		mScale[index] = particle.mScale;
+		mAlpha[index] = particle.mAlpha;
+	}
+
+	/**
+	 * Writes the arrays at the given index back to the particle.
+	 */
+	public void store(int index) {
+		Particle particle = mParticles[index];
+		particle.mCurrentX = mX[index];
+		particle.mCurrentY = mY[index];
+		particle.mScale = mScale[index];
+		particle.mAlpha = mAlpha[index];
+	}
+
+	/**
+	 * Writes all the arrays back to the particles, then empties the batch without holding on to
+	 * the particles.
+	 */
+	public void storeAll() {
+		for (int i = 0; i < mCount; i++) {
+			store(i);
+			mParticles[i] = null;
+		}
+		mCount = 0;
+	}
+}
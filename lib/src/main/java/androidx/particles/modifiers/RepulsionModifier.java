@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.particles.Particle;
+import androidx.particles.SpatialGrid;
+
+/**
+ * Pushes particles away from each other when they get closer than a radius.
+ */
+public class RepulsionModifier implements SpatialModifier {
+
+	private static final int MAX_NEIGHBOURS = 32;
+
+	private final float mRadius;
+	private final float mStrength;
+	private final int[] mNeighbours = new int[MAX_NEIGHBOURS];
+	private SpatialGrid mGrid;
+
+	/**
+	 * @param radius The distance in pixels under which particles repel each other.
+	 * @param strength The acceleration in pixels per square millisecond between two particles at the
+	 *                 same position, decreasing linearly to 0 at {@code radius}.
+	 */
+	public RepulsionModifier(@Px float radius, float strength) {
+		mRadius = radius;
+		mStrength = strength;
+	}
+
+	@Override
+	public float getRadius() {
+		return mRadius;
+	}
+
+	@Override
+	public void prepare(@NonNull SpatialGrid grid) {
+		mGrid = grid;
+	}
+
+	@Override
+	public void apply(@NonNull Particle particle, long milliseconds) {
+		long delta = particle.getFrameDelta();
+		if (mGrid == null || delta == 0) {
+			return;
+		}
+		float x = particle.getCenterX();
+		float y = particle.getCenterY();
+		float forceX = 0;
+		float forceY = 0;
+		int count = mGrid.query(x, y, mRadius, mNeighbours);
+		for (int i = 0; i < count; i++) {
+			int neighbour = mNeighbours[i];
+			if (mGrid.getParticle(neighbour) == particle) {
+				continue;
+			}
+			float dx = x - mGrid.getX(neighbour);
+			float dy = y - mGrid.getY(neighbour);
+			float distance = (float) Math.sqrt(dx*dx + dy*dy);
+			if (distance > 0) {
+				float falloff = (1 - distance/mRadius) / distance;
+				forceX += dx*falloff;
+				forceY += dy*falloff;
+			}
+		}
+		particle.addVelocity(forceX*mStrength*delta, forceY*mStrength*delta);
+	}
+
+}
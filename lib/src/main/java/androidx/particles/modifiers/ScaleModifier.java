@@ -22,7 +22,7 @@ import android.view.animation.LinearInterpolator;
 import androidx.annotation.NonNull;
 import androidx.particles.Particle;
 
-public class ScaleModifier implements ParticleModifier {
+public class ScaleModifier implements BatchParticleModifier {
 
 	private float mStartValue;
 	private float mEndValue;
@@ -31,6 +31,7 @@ public class ScaleModifier implements ParticleModifier {
 	private long mDuration;
 	private float mValueIncrement;
 	private Interpolator mInterpolator;
+	private boolean mLinear;
 
 	public ScaleModifier(float startValue, float endValue, long startMillis, long endMillis,
 						 @NonNull Interpolator interpolator) {
@@ -41,6 +42,7 @@ public class ScaleModifier implements ParticleModifier {
 		mDuration = mEndTime - mStartTime;
 		mValueIncrement = mEndValue - mStartValue;
 		mInterpolator = interpolator;
+		mLinear = interpolator.getClass() == LinearInterpolator.class;
 	}
 	
 	public ScaleModifier(float startValue, float endValue, long startMillis, long endMillis) {
@@ -49,17 +51,47 @@ public class ScaleModifier implements ParticleModifier {
 	
 	@Override
 	public void apply(@NonNull Particle particle, long milliseconds) {
+		particle.mScale = getScale(milliseconds);
+	}
+
+	private float getScale(long milliseconds) {
 		if (milliseconds < mStartTime) {
-			particle.mScale = mStartValue;
+			return mStartValue;
 		}
 		else if (milliseconds > mEndTime) {
-			particle.mScale = mEndValue;
+			return mEndValue;
 		}
 		else {
 			float interpolatedValue = mInterpolator.getInterpolation((milliseconds - mStartTime)*1f/mDuration);
-			float newScale = mStartValue + mValueIncrement*interpolatedValue;
-			particle.mScale = newScale;
+			return mStartValue + mValueIncrement*interpolatedValue;
 		}
 	}
 
+	@Override
+	public void applyBatch(@NonNull ParticleBatch batch) {
+		long[] ages = batch.mAge;
+		float[] scales = batch.mScale;
+		int count = batch.mCount;
+		if (!mLinear) {
+			for (int i = 0; i < count; i++) {
+				scales[i] = getScale(ages[i]);
+			}
+			return;
+		}
+		// Same as getScale() with the interpolation inlined
+		long startTime = mStartTime;
+		long endTime = mEndTime;
+		for (int i = 0; i < count; i++) {
+			long age = ages[i];
+			if (age < startTime) {
+				scales[i] = mStartValue;
+			}
+			else if (age > endTime) {
+				scales[i] = mEndValue;
+			}
+			else {
+				scales[i] = mStartValue + mValueIncrement*((age - startTime)*1f/mDuration);
+			}
+		}
+	}
 }
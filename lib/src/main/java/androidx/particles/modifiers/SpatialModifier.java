@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.Px;
+import androidx.particles.SpatialGrid;
+
+/**
+ * A modifier that needs to know which particles are near each other.
+ * <p>
+ * Before each update, the particle system rebuilds a {@link SpatialGrid} of the centers of its
+ * active particles and passes it to {@link #prepare(SpatialGrid)}. The grid can then be queried
+ * when the modifier is applied to each particle.
+ */
+public interface SpatialModifier extends ParticleModifier {
+
+	/**
+	 * Returns the largest radius the modifier queries the grid with, used as the size of its cells.
+	 */
+	@Px
+	float getRadius();
+
+	/**
+	 * Called once per update, before the modifier is applied to the particles.
+	 *
+	 * @param grid The grid of the positions of the active particles before the update.
+	 */
+	void prepare(SpatialGrid grid);
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2013-2018 Raul Portales  (@plattysoft) and contributors,
+ *               2020      Thomas Orlando (@thomorl) and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.particles.modifiers;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.particles.Particle;
+
+/**
+ * Moves particles with animated curl noise, for organic motion such as dust or smoke.
+ * <p>
+ * By default the noise is evaluated for every particle on every update. For large numbers of
+ * particles, {@link #setLattice(float, float, float, float, int, int)} caches it on a coarse
+ * {@link FlowField} instead, of which a few rows are refreshed on every update to animate it.
+ */
+public class TurbulenceModifier implements ParticleModifier {
+
+	// Step used to differentiate the noise, in noise space
+	private static final float EPSILON = 0.01f;
+
+	private final GradientNoise mNoise;
+	private final float mFrequency;
+	private final float mStrength;
+	private final int mOctaves;
+	private final float mTimeScale;
+
+	private FlowField mLattice;
+	private int mRowsPerUpdate;
+	private int mNextRow;
+	private boolean mLatticeFilled;
+	private long mLatticeTime;
+	private float mNoiseTime;
+
+	private final FlowField.Function mCurl = new FlowField.Function() {
+		@Override
+		public void evaluate(float x, float y, @NonNull float[] out) {
+			float nx = x * mFrequency;
+			float ny = y * mFrequency;
+			float n = mNoise.fractal(nx, ny, mNoiseTime, mOctaves);
+			out[0] = (mNoise.fractal(nx, ny + EPSILON, mNoiseTime, mOctaves) - n) / EPSILON;
+			out[1] = -(mNoise.fractal(nx + EPSILON, ny, mNoiseTime, mOctaves) - n) / EPSILON;
+		}
+	};
+
+	/**
+	 * @param scale The size in pixels of the features of the noise.
+	 * @param strength The acceleration applied to the particles in pixels per square millisecond.
+	 * @param octaves The number of octaves of noise, adding finer detail.
+	 * @param timeScale How fast the noise changes, in noise features per millisecond.
+	 * @param seed The seed of the noise.
+	 */
+	public TurbulenceModifier(@Px float scale, float strength, @IntRange(from=1) int octaves,
+							  float timeScale, long seed) {
+		mNoise = new GradientNoise(seed);
+		mFrequency = 1 / scale;
+		mStrength = strength;
+		mOctaves = octaves;
+		mTimeScale = timeScale;
+	}
+
+	/**
+	 * @param scale The size in pixels of the features of the noise.
+	 * @param strength The acceleration applied to the particles in pixels per square millisecond.
+	 * @param octaves The number of octaves of noise, adding finer detail.
+	 */
+	public TurbulenceModifier(@Px float scale, float strength, @IntRange(from=1) int octaves) {
+		this(scale, strength, octaves, 0.0005f, 0);
+	}
+
+	/**
+	 * Caches the noise on a coarse lattice covering the area where particles move. Positions outside
+	 * of the area get the noise of the closest edge.
+	 *
+	 * @param left The left edge of the area.
+	 * @param top The top edge of the area.
+	 * @param width The width of the area.
+	 * @param height The height of the area.
+	 * @param columns The number of nodes of the lattice per row.
+	 * @param rows The number of nodes of the lattice per column.
+	 * @return This.
+	 */
+	@NonNull
+	public TurbulenceModifier setLattice(@Px float left, @Px float top, @Px float width, @Px float height,
+										 int columns, int rows) {
+		mLattice = new FlowField(left, top, width, height, columns, rows);
+		// Refresh the whole lattice about every 8 updates
+		mRowsPerUpdate = Math.max(1, (rows + 7) / 8);
+		mLatticeFilled = false;
+		return this;
+	}
+
+	@Override
+	public void apply(@NonNull Particle particle, long milliseconds) {
+		long delta = particle.getFrameDelta();
+		if (delta == 0) {
+			return;
+		}
+		float x = particle.getCenterX();
+		float y = particle.getCenterY();
+		float curlX;
+		float curlY;
+		if (mLattice != null) {
+			updateLattice(particle.getSystemTime());
+			curlX = mLattice.sampleX(x, y);
+			curlY = mLattice.sampleY(x, y);
+		}
+		else {
+			float nx = x * mFrequency;
+			float ny = y * mFrequency;
+			float nz = particle.getSystemTime() * mTimeScale;
+			float n = mNoise.fractal(nx, ny, nz, mOctaves);
+			curlX = (mNoise.fractal(nx, ny + EPSILON, nz, mOctaves) - n) / EPSILON;
+			curlY = -(mNoise.fractal(nx + EPSILON, ny, nz, mOctaves) - n) / EPSILON;
+		}
+		particle.addVelocity(curlX*mStrength*delta, curlY*mStrength*delta);
+	}
+
+	// Refreshes some rows of the lattice the first time it is sampled at a new time
+	private void updateLattice(long time) {
+		if (mLatticeFilled && time == mLatticeTime) {
+			return;
+		}
+		mNoiseTime = time * mTimeScale;
+		if (!mLatticeFilled) {
+			mLattice.fill(mCurl);
+			mLatticeFilled = true;
+		}
+		else {
+			mLattice.fillRows(mCurl, mNextRow, mRowsPerUpdate);
+			mNextRow = (mNextRow + mRowsPerUpdate) % mLattice.getRows();
+		}
+		mLatticeTime = time;
+	}
+
+}
@@ -0,0 +1,65 @@
+package androidx.particles
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+
+class AdaptiveQualityControllerTests : StringSpec({
+    // A 4 ms budget on a 10 ms display, fed one 250 ms window at a time
+    class Windows {
+        val controller = AdaptiveQualityController(4f, 10f)
+        var now = 0L
+
+        init {
+            controller.addCost(0, now)
+        }
+
+        fun add(frameCostMillis: Float) {
+            now += WINDOW_NANOS
+            // 25 frames per window
+            controller.addCost((frameCostMillis * 1_000_000 * 25).toLong(), now)
+        }
+    }
+
+    "quality is lowered after two windows over budget" {
+        val windows = Windows()
+        windows.add(5f)
+        windows.controller.qualityLevel shouldBe AdaptiveQualityController.MAX_QUALITY_LEVEL
+        windows.add(5f)
+        windows.controller.qualityLevel shouldBe AdaptiveQualityController.MAX_QUALITY_LEVEL - 1
+        windows.add(5f)
+        windows.controller.qualityLevel shouldBe AdaptiveQualityController.MAX_QUALITY_LEVEL - 1
+        windows.add(5f)
+        windows.controller.qualityLevel shouldBe AdaptiveQualityController.MAX_QUALITY_LEVEL - 2
+    }
+
+    "a window within budget restarts the count" {
+        val windows = Windows()
+        windows.add(5f)
+        windows.add(3f)
+        windows.add(5f)
+        windows.controller.qualityLevel shouldBe AdaptiveQualityController.MAX_QUALITY_LEVEL
+    }
+
+    "quality is raised after eight windows under 60% of the budget" {
+        val windows = Windows()
+        windows.add(5f)
+        windows.add(5f)
+        val lowered = windows.controller.qualityLevel
+
+        // 70% of the budget neither lowers nor raises the quality
+        repeat(20) { windows.add(2.8f) }
+        windows.controller.qualityLevel shouldBe lowered
+
+        repeat(7) { windows.add(2f) }
+        windows.controller.qualityLevel shouldBe lowered
+        windows.add(2.8f)
+        repeat(7) { windows.add(2f) }
+        windows.controller.qualityLevel shouldBe lowered
+        windows.add(2f)
+        windows.controller.qualityLevel shouldBe lowered + 1
+    }
+}) {
+    companion object {
+        const val WINDOW_NANOS = 250_000_000L
+    }
+}
@@ -0,0 +1,96 @@
+package androidx.particles
+
+import androidx.particles.initializers.AccelerationInitializer
+import androidx.particles.initializers.ParticleInitializer
+import androidx.particles.initializers.RotationInitializer
+import androidx.particles.initializers.SpeedByComponentsInitializer
+import androidx.particles.modifiers.SpatialModifier
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.floats.plusOrMinus
+import io.kotest.matchers.shouldBe
+import io.mockk.mockk
+import io.mockk.verify
+import java.util.Random
+
+class BakedEffectTests : StringSpec({
+    val sprite = mockSprite(4, 4)
+    val initializers = listOf<ParticleInitializer>(
+        SpeedByComponentsInitializer(0.1f, 0.1f, 0.05f, 0.05f),
+        AccelerationInitializer(0.0001f, 0.0001f, 90, 90),
+        RotationInitializer(30, 30)
+    )
+
+    fun bake(timestep: Int) =
+        BakedEffect(sprite, 1, KEYFRAME_INTERVAL, TIME_TO_LIVE, timestep, initializers, listOf(), Random(0))
+
+    fun simulated(timestep: Int) = Particle(sprite).apply {
+        init()
+        for (initializer in initializers) {
+            initializer.initParticle(this, Random(0))
+        }
+        configure(TIME_TO_LIVE, EMITTER_X, EMITTER_Y)
+        setTimestep(timestep)
+        activate(0, listOf())
+    }
+
+    fun baked(effect: BakedEffect, mirror: Boolean, angle: Float) = Particle(sprite).apply {
+        init()
+        configure(TIME_TO_LIVE, EMITTER_X, EMITTER_Y)
+        setBakedTrajectory(effect, 0, mirror, angle)
+        activate(0, listOf())
+    }
+
+    "baked particles match simulated ones at keyframes" {
+        for (timestep in listOf(0, 16)) {
+            val simulated = simulated(timestep)
+            val baked = baked(bake(timestep), false, 0f)
+            for (k in 0..TIME_TO_LIVE / KEYFRAME_INTERVAL) {
+                val time = k * KEYFRAME_INTERVAL.toLong()
+                simulated.update(time)
+                baked.update(time)
+                baked.centerX shouldBe (simulated.centerX plusOrMinus 1e-3f)
+                baked.centerY shouldBe (simulated.centerY plusOrMinus 1e-3f)
+                baked.rotation shouldBe (simulated.rotation plusOrMinus 1e-3f)
+            }
+        }
+    }
+
+    "mirrored and rotated trajectories are transformed around the emitter" {
+        val effect = bake(16)
+        val simulated = simulated(16)
+        val mirrored = baked(effect, true, 0f)
+        val rotated = baked(effect, false, 90f)
+        for (time in listOf(0L, 300L, 1000L)) {
+            simulated.update(time)
+            mirrored.update(time)
+            rotated.update(time)
+            val dx = simulated.centerX - EMITTER_X
+            val dy = simulated.centerY - EMITTER_Y
+
+            mirrored.centerX shouldBe (EMITTER_X - dx plusOrMinus 1e-3f)
+            mirrored.centerY shouldBe (EMITTER_Y + dy plusOrMinus 1e-3f)
+            mirrored.rotation shouldBe (-30f plusOrMinus 1e-3f)
+
+            rotated.centerX shouldBe (EMITTER_X - dy plusOrMinus 1e-3f)
+            rotated.centerY shouldBe (EMITTER_Y + dx plusOrMinus 1e-3f)
+            rotated.rotation shouldBe (120f plusOrMinus 1e-3f)
+        }
+    }
+
+    "modifiers sharing state with the running system are not baked" {
+        val spatial = mockk<SpatialModifier>(relaxed = true)
+        val system = ParticleSystem(mockParentView(), 10, arrayOf(sprite), TIME_TO_LIVE)
+            .addModifier(spatial)
+
+        system.bake(2, KEYFRAME_INTERVAL)
+
+        verify(exactly = 0) { spatial.apply(any(), any()) }
+    }
+}) {
+    companion object {
+        const val KEYFRAME_INTERVAL = 100
+        const val TIME_TO_LIVE = 1000L
+        const val EMITTER_X = 50f
+        const val EMITTER_Y = 80f
+    }
+}
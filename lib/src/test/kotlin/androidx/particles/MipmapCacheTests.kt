@@ -0,0 +1,39 @@
+package androidx.particles
+
+import android.graphics.Bitmap
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import io.mockk.every
+import io.mockk.mockkStatic
+import io.mockk.unmockkStatic
+
+class MipmapCacheTests : StringSpec({
+    beforeTest {
+        mockkStatic(Bitmap::class)
+        every { Bitmap.createScaledBitmap(any(), any(), any(), any()) } answers {
+            mockSprite(secondArg(), thirdArg())
+        }
+        MipmapCache.trim()
+    }
+
+    afterTest {
+        unmockkStatic(Bitmap::class)
+    }
+
+    "levels dropped from the cache are counted by whoever drops the last reference" {
+        // Levels of 4 × 4, 2 × 2 and 1 × 1 pixels
+        val sprite = mockSprite(8, 8)
+        val levels = MipmapCache.getLevels(sprite)
+        levels.size shouldBe 3
+
+        MipmapCache.getUncachedByteCount(listOf(levels)) shouldBe 0L
+        MipmapCache.trim() shouldBe LEVELS_BYTE_COUNT
+        MipmapCache.getUncachedByteCount(listOf(levels)) shouldBe LEVELS_BYTE_COUNT
+        MipmapCache.getLevels(sprite) shouldNotBeSameInstanceAs levels
+    }
+}) {
+    companion object {
+        const val LEVELS_BYTE_COUNT = (4 * 4 + 2 * 2 + 1) * 4L
+    }
+}
@@ -0,0 +1,43 @@
+package androidx.particles
+
+import android.graphics.Bitmap
+import android.view.ViewGroup
+import io.mockk.Runs
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+
+/**
+ * A parent view group, enough to create particle systems and run them offline.
+ */
+fun mockParentView(): ViewGroup = mockk {
+    every { getLocationInWindow(any()) } just Runs
+    every { context } returns mockk {
+        every { resources } returns mockk {
+            every { displayMetrics } returns mockk {
+                // Google Pixel as reference (411 × 731 dp)
+                // https://material.io/resources/devices/
+                xdpi = 411.0f
+            }
+        }
+    }
+}
+
+/**
+ * A software sprite with the given straight ARGB pixels, row after row.
+ */
+fun mockSprite(width: Int, height: Int, vararg pixels: Int): Bitmap = mockk {
+    every { getWidth() } returns width
+    every { getHeight() } returns height
+    every { config } returns Bitmap.Config.ARGB_8888
+    every { generationId } returns 0
+    every { byteCount } returns width * height * 4
+    every { getPixels(any(), any(), any(), any(), any(), any(), any()) } answers {
+        pixels.copyInto(firstArg<IntArray>())
+    }
+}
+
+/**
+ * Integrates the motion of the particle in fixed steps, from tests outside of the package.
+ */
+fun Particle.useTimestep(timestep: Int) = setTimestep(timestep)
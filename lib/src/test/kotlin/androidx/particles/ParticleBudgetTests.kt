@@ -0,0 +1,39 @@
+package androidx.particles
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.mockk
+
+class ParticleBudgetTests : StringSpec({
+    "priorities only fill their share of the capacity" {
+        val budget = ParticleBudget(10)
+        val low = budget.open(mockk(), ParticleBudget.PRIORITY_LOW)
+        val high = budget.open(mockk(), ParticleBudget.PRIORITY_HIGH)
+
+        repeat(10) { low.tryAcquire() }
+        budget.particleCount shouldBe 5
+
+        repeat(10) { high.tryAcquire() }
+        budget.particleCount shouldBe 10
+        high.tryAcquire() shouldBe false
+    }
+
+    "usages account every particle system" {
+        val budget = ParticleBudget(4)
+        val system: ParticleSystem = mockk()
+        val allocation = budget.open(system, ParticleBudget.PRIORITY_HIGH)
+
+        repeat(6) { allocation.tryAcquire() }
+        allocation.release(3)
+
+        val usage = budget.usages.single()
+        usage.system shouldBe system
+        usage.particleCount shouldBe 1
+        usage.peakParticleCount shouldBe 4
+        usage.refusedCount shouldBe 2
+
+        allocation.close()
+        budget.particleCount shouldBe 0
+        budget.usages.size shouldBe 0
+    }
+})
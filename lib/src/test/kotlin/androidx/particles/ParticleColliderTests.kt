@@ -0,0 +1,64 @@
+package androidx.particles
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.floats.plusOrMinus
+import io.kotest.matchers.shouldBe
+
+class ParticleColliderTests : StringSpec({
+    fun particle(x: Float, y: Float, speedX: Float, speedY: Float) = Particle(mockSprite(4, 4)).apply {
+        mSpeedX = speedX
+        mSpeedY = speedY
+        configure(1000, x, y)
+        activate(0, listOf())
+    }
+
+    "particles bounce off the walls of the container" {
+        val collider = ParticleCollider(0.5f, 0.2f).setContainer(0f, 0f, 100f, 100f)
+        val particle = particle(95f, 50f, 0.1f, 0.05f)
+
+        particle.update(100)
+        collider.prepare()
+        collider.collide(particle)
+
+        particle.centerX shouldBe (100f plusOrMinus 1e-4f)
+        particle.centerY shouldBe (55f plusOrMinus 1e-4f)
+        particle.velocityX shouldBe (-0.05f plusOrMinus 1e-6f)
+        particle.velocityY shouldBe (0.04f plusOrMinus 1e-6f)
+
+        // Moves away from the wall from where it bounced
+        particle.update(200)
+        particle.centerX shouldBe (95f plusOrMinus 1e-3f)
+        particle.centerY shouldBe (59f plusOrMinus 1e-3f)
+    }
+
+    "particles bounce off the edge of an obstacle they crossed" {
+        val collider = ParticleCollider(1f, 0f).addObstacle(40f, 50f, 60f, 70f)
+        val particle = particle(39.5f, 45f, 0.02f, 0.1f)
+
+        particle.update(100)
+        collider.prepare()
+        collider.collide(particle)
+
+        // Crossed the left edge first, so it hit the top one, though the left one is closer
+        particle.centerX shouldBe (41.5f plusOrMinus 1e-4f)
+        particle.centerY shouldBe (50f plusOrMinus 1e-4f)
+        particle.velocityX shouldBe (0.02f plusOrMinus 1e-6f)
+        particle.velocityY shouldBe (-0.1f plusOrMinus 1e-6f)
+    }
+
+    "fast particles bounce off thin obstacles they went through" {
+        val collider = ParticleCollider(1f, 0f)
+            .addObstacle(40f, 50f, 60f, 52f)
+            .addObstacle(0f, 0f, 10f, 10f)
+        val particle = particle(45f, 40f, 0.01f, 0.2f)
+
+        particle.update(100)
+        collider.prepare()
+        collider.collide(particle)
+
+        particle.centerX shouldBe (46f plusOrMinus 1e-4f)
+        particle.centerY shouldBe (50f plusOrMinus 1e-4f)
+        particle.velocityX shouldBe (0.01f plusOrMinus 1e-6f)
+        particle.velocityY shouldBe (-0.2f plusOrMinus 1e-6f)
+    }
+})
@@ -0,0 +1,38 @@
+package androidx.particles
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.view.ViewGroup
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.every
+import io.mockk.mockk
+
+class ParticleCompositorTests : StringSpec({
+    "systems are drawn by layer, then grouped by texture in registration order" {
+        val compositor = ParticleCompositor.obtain(mockk<ViewGroup>(relaxed = true))
+        val drawn = ArrayList<String>()
+        val texture1 = mockk<Bitmap>()
+        val texture2 = mockk<Bitmap>()
+
+        fun register(name: String, layer: Int, texture: Bitmap) {
+            val system = mockk<ParticleSystem> {
+                every { qualityController } returns null
+            }
+            val particle = mockk<Particle> {
+                every { draw(any()) } answers { drawn.add(name) }
+            }
+            compositor.register(system, layer, texture, arrayListOf(particle))
+        }
+
+        register("a", 0, texture1)
+        register("b", 0, texture2)
+        register("c", 0, texture1)
+        register("d", -1, texture2)
+        register("e", 1, texture1)
+        register("f", 0, texture2)
+        compositor.draw(mockk<Canvas>())
+
+        drawn shouldBe listOf("d", "a", "c", "b", "f", "e")
+    }
+})
@@ -0,0 +1,115 @@
+package androidx.particles
+
+import android.view.ViewGroup
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.Runs
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.mockkConstructor
+import io.mockk.slot
+import io.mockk.unmockkConstructor
+import java.io.File
+import java.io.RandomAccessFile
+
+class ParticleRecorderTests : StringSpec({
+    val sprite = mockSprite(2, 2, 0, 0, 0, 0)
+    val drawn = slot<ArrayList<Particle>>()
+
+    beforeTest {
+        mockkConstructor(ParticleField::class)
+        every { anyConstructed<ParticleField>().setParticles(capture(drawn)) } just Runs
+        every { anyConstructed<ParticleField>().invalidate() } just Runs
+    }
+
+    afterTest {
+        unmockkConstructor(ParticleField::class)
+    }
+
+    // Frame n has n particles, the particle i at (i, 2i)
+    fun record(file: File, times: List<Long>): ParticleRecorder {
+        val recorder = ParticleRecorder(file)
+        for ((frame, time) in times.withIndex()) {
+            recorder.record(time, List(frame) { i ->
+                Particle(sprite).apply {
+                    mCurrentX = i.toFloat()
+                    mCurrentY = 2f * i
+                }
+            })
+        }
+        recorder.close()
+        return recorder
+    }
+
+    // One frame every 10 ms
+    fun record(file: File, frames: Int) = record(file, List(frames) { it * 10L })
+
+    fun withTempFile(block: (File) -> Unit) {
+        val file = File.createTempFile("particles", ".rec")
+        try {
+            block(file)
+        }
+        finally {
+            file.delete()
+        }
+    }
+
+    "recordings play back frame by frame" {
+        withTempFile { file ->
+            val recorder = record(file, 5)
+            recorder.frameCount shouldBe 5
+            recorder.sprites shouldBe listOf(sprite)
+
+            val replayer = ParticleReplayer(file, mockk<ViewGroup>(relaxed = true), sprite)
+            replayer.frameCount shouldBe 5
+            replayer.getFrameTime(3) shouldBe 30L
+
+            replayer.seekTo(25)
+            replayer.frame shouldBe 2
+            drawn.captured.size shouldBe 2
+            drawn.captured[1].mCurrentX shouldBe 1f
+            drawn.captured[1].mCurrentY shouldBe 2f
+
+            replayer.seekTo(40)
+            replayer.frame shouldBe 4
+            drawn.captured.size shouldBe 4
+            replayer.seekTo(-5)
+            replayer.frame shouldBe 0
+            drawn.captured.size shouldBe 0
+            replayer.seekTo(1000)
+            replayer.frame shouldBe 4
+            replayer.close()
+        }
+    }
+
+    "recordings of restarted systems are sought in the last run reaching the time" {
+        withTempFile { file ->
+            record(file, listOf(0L, 10L, 20L, 0L, 10L))
+
+            val replayer = ParticleReplayer(file, mockk<ViewGroup>(relaxed = true), sprite)
+            replayer.seekTo(15)
+            replayer.frame shouldBe 4
+            replayer.seekTo(25)
+            replayer.frame shouldBe 2
+            replayer.seekTo(0)
+            replayer.frame shouldBe 3
+            replayer.seekTo(-5)
+            replayer.frame shouldBe 0
+            replayer.close()
+        }
+    }
+
+    "a last frame cut short is ignored" {
+        withTempFile { file ->
+            record(file, 4)
+            RandomAccessFile(file, "rw").use { it.setLength(it.length() - 5) }
+
+            val replayer = ParticleReplayer(file, mockk<ViewGroup>(relaxed = true), sprite)
+            replayer.frameCount shouldBe 3
+            replayer.seekTo(1000)
+            replayer.frame shouldBe 2
+            replayer.close()
+        }
+    }
+})
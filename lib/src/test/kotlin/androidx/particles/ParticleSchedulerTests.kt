@@ -0,0 +1,59 @@
+package androidx.particles
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.every
+import io.mockk.mockk
+
+class ParticleSchedulerTests : StringSpec({
+    fun system(name: String, priority: Int, ticks: MutableList<Pair<String, Boolean>>): ParticleSystem = mockk {
+        every { getPriority() } returns priority
+        every { onTimerTick(any()) } answers { ticks.add(name to firstArg<Boolean>()) }
+    }
+
+    "systems are updated by descending priority, then in registration order" {
+        val ticks = ArrayList<Pair<String, Boolean>>()
+        // A budget that is never spent
+        val scheduler = ParticleScheduler(1000f, true)
+        val systems = listOf(
+            system("a", ParticleBudget.PRIORITY_LOW, ticks),
+            system("b", ParticleBudget.PRIORITY_HIGH, ticks),
+            system("c", ParticleBudget.PRIORITY_NORMAL, ticks),
+            system("d", ParticleBudget.PRIORITY_HIGH, ticks),
+            system("e", ParticleBudget.PRIORITY_LOW, ticks)
+        )
+        systems.forEach { scheduler.register(it) }
+
+        scheduler.onTick()
+
+        ticks.map { it.first } shouldBe listOf("b", "d", "c", "a", "e")
+        ticks.count { it.second } shouldBe 0
+    }
+
+    "high priority systems are never deferred, others at most 4 ticks in a row" {
+        val ticks = ArrayList<Pair<String, Boolean>>()
+        val deferrals = ArrayList<Int>()
+        // A budget that is always spent
+        val scheduler = ParticleScheduler(-1f, true)
+        scheduler.setOnDeferralListener(object : ParticleScheduler.OnDeferralListener {
+            override fun onDeferral(system: ParticleSystem, consecutiveDeferrals: Int) {
+                deferrals.add(consecutiveDeferrals)
+            }
+        })
+        val high = system("high", ParticleBudget.PRIORITY_HIGH, ticks)
+        val normal = system("normal", ParticleBudget.PRIORITY_NORMAL, ticks)
+        scheduler.register(normal)
+        scheduler.register(high)
+
+        repeat(6) { scheduler.onTick() }
+
+        ticks.filter { it.first == "high" }.map { it.second } shouldBe List(6) { false }
+        ticks.filter { it.first == "normal" }.map { it.second } shouldBe
+                listOf(true, true, true, true, false, true)
+        deferrals shouldBe listOf(1, 2, 3, 4, 1)
+        scheduler.deferralCount shouldBe 5L
+
+        scheduler.unregister(normal)
+        scheduler.unregister(high)
+    }
+})
@@ -0,0 +1,139 @@
+package androidx.particles
+
+import android.animation.ValueAnimator
+import android.view.View
+import android.view.ViewGroup
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleObserver
+import androidx.lifecycle.LifecycleOwner
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.Runs
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.mockk.mockkConstructor
+import io.mockk.slot
+import io.mockk.unmockkConstructor
+import io.mockk.verify
+import io.mockk.verifyOrder
+
+class ParticleSystemLifecycleTests : StringSpec({
+    val attachListener = slot<View.OnAttachStateChangeListener>()
+    val shownListener = slot<ParticleField.OnShownChangeListener>()
+
+    beforeTest {
+        mockkConstructor(ParticleField::class)
+        every { anyConstructed<ParticleField>().addOnAttachStateChangeListener(capture(attachListener)) } just Runs
+        every { anyConstructed<ParticleField>().removeOnAttachStateChangeListener(any()) } just Runs
+        every { anyConstructed<ParticleField>().addOnShownChangeListener(capture(shownListener)) } just Runs
+        every { anyConstructed<ParticleField>().removeOnShownChangeListener(any()) } just Runs
+        every { anyConstructed<ParticleField>().windowToken } returns mockk()
+        every { anyConstructed<ParticleField>().isShownOnScreen() } returns true
+        every { anyConstructed<ParticleField>().postInvalidate() } just Runs
+    }
+
+    afterTest {
+        unmockkConstructor(ParticleField::class)
+    }
+
+    "paused systems resume without catching up with the paused time" {
+        var now = 1000L
+        var state = Lifecycle.State.RESUMED
+        val lifecycleObserver = slot<LifecycleObserver>()
+        val lifecycle: Lifecycle = mockk {
+            every { addObserver(capture(lifecycleObserver)) } just Runs
+            every { removeObserver(any()) } just Runs
+            every { currentState } answers { state }
+        }
+        val owner = LifecycleOwner { lifecycle }
+        val scheduler = ParticleScheduler(1000f, true)
+        val system = ParticleSystem(mockk<ViewGroup>(relaxed = true), 200, arrayOf(mockSprite(4, 4)), 10_000)
+            .setScheduler(scheduler)
+            .setLifecycleOwner(owner)
+            .setClock(object : ParticleClock {
+                override fun uptimeMillis() = now
+            })
+        fun tick(milliseconds: Long) {
+            now += milliseconds
+            scheduler.onTick()
+        }
+        fun onLifecycleEvent(event: Lifecycle.Event, newState: Lifecycle.State) {
+            state = newState
+            (lifecycleObserver.captured as LifecycleEventObserver).onStateChanged(owner, event)
+        }
+
+        // One particle every 10 ms
+        system.emit(0, 0, 100)
+        tick(0)
+        tick(16)
+        system.activeParticles.size shouldBe 2
+
+        attachListener.captured.onViewDetachedFromWindow(mockk())
+        tick(5000)
+        system.activeParticles.size shouldBe 2
+        attachListener.captured.onViewAttachedToWindow(mockk())
+        // The first tick after resuming restarts the clock
+        tick(5000)
+        system.activeParticles.size shouldBe 2
+        tick(16)
+        system.activeParticles.size shouldBe 4
+
+        shownListener.captured.onShownChange(false)
+        tick(5000)
+        system.activeParticles.size shouldBe 4
+        shownListener.captured.onShownChange(true)
+        tick(5000)
+        tick(16)
+        system.activeParticles.size shouldBe 5
+
+        onLifecycleEvent(Lifecycle.Event.ON_STOP, Lifecycle.State.CREATED)
+        tick(5000)
+        system.activeParticles.size shouldBe 5
+        onLifecycleEvent(Lifecycle.Event.ON_START, Lifecycle.State.STARTED)
+        tick(5000)
+        tick(16)
+        system.activeParticles.size shouldBe 7
+
+        system.cancel()
+    }
+
+    "one shots are stopped and restarted from their play time where animators cannot pause" {
+        // Unit tests run with SDK_INT 0, before KitKat
+        mockkConstructor(ValueAnimator::class)
+        every { anyConstructed<ValueAnimator>().setIntValues(*anyIntVararg()) } just Runs
+        every { anyConstructed<ValueAnimator>().setDuration(any()) } answers { self as ValueAnimator }
+        every { anyConstructed<ValueAnimator>().setInterpolator(any()) } just Runs
+        every { anyConstructed<ValueAnimator>().addUpdateListener(any()) } just Runs
+        every { anyConstructed<ValueAnimator>().addListener(any()) } just Runs
+        every { anyConstructed<ValueAnimator>().start() } just Runs
+        every { anyConstructed<ValueAnimator>().cancel() } just Runs
+        every { anyConstructed<ValueAnimator>().isRunning } returns true
+        every { anyConstructed<ValueAnimator>().currentPlayTime } returns 300L
+        every { anyConstructed<ValueAnimator>().setCurrentPlayTime(any()) } just Runs
+        try {
+            val parent = mockk<ViewGroup>(relaxed = true)
+            val system = ParticleSystem(parent, 10, arrayOf(mockSprite(4, 4)), 1000)
+
+            system.oneShot(mockk<View>(relaxed = true), 5)
+            attachListener.captured.onViewDetachedFromWindow(mockk())
+            verify(exactly = 1) { anyConstructed<ValueAnimator>().cancel() }
+            attachListener.captured.onViewAttachedToWindow(mockk())
+            verifyOrder {
+                anyConstructed<ValueAnimator>().start()
+                anyConstructed<ValueAnimator>().cancel()
+                anyConstructed<ValueAnimator>().start()
+                anyConstructed<ValueAnimator>().setCurrentPlayTime(300L)
+            }
+
+            // Cancelled while paused, the animator is not running to clean up
+            attachListener.captured.onViewDetachedFromWindow(mockk())
+            system.cancel()
+            verify(exactly = 1) { parent.removeView(any()) }
+        }
+        finally {
+            unmockkConstructor(ValueAnimator::class)
+        }
+    }
+})
@@ -1,31 +1,22 @@
 package androidx.particles
 
 import android.app.Activity
+import android.content.ComponentCallbacks2
 import android.graphics.Bitmap
 import android.view.ViewGroup
+import androidx.particles.initializers.ColorInitializer
+import androidx.particles.initializers.SpeedByComponentsInitializer
 import io.kotest.assertions.throwables.shouldThrowExactly
 import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.floats.plusOrMinus
+import io.kotest.matchers.shouldBe
 import io.kotest.matchers.throwable.shouldHaveMessage
-import io.mockk.Runs
 import io.mockk.every
-import io.mockk.just
 import io.mockk.mockk
 
 class ParticleSystemTests : StringSpec({
     "empty Bitmap array constructor parameter exception" {
-        // Create a mock ViewGroup
-        val viewGroup: ViewGroup = mockk {
-            every { getLocationInWindow(any()) } just Runs
-            every { context } returns mockk {
-                every { resources } returns mockk {
-                    every { displayMetrics } returns mockk {
-                        // Google Pixel as reference (411 × 731 dp)
-                        // https://material.io/resources/devices/
-                        xdpi = 411.0f
-                    }
-                }
-            }
-        }
+        val viewGroup = mockParentView()
         // Create a mock activity
         val activity: Activity = mockk {
             every { findViewById<ViewGroup>(any()) } returns viewGroup
@@ -42,8 +33,92 @@ class ParticleSystemTests : StringSpec({
             ParticleSystem(activity, 100, arrayOf<Bitmap>(), 1000, android.R.id.content)
         } shouldHaveMessage EMPTY_BITMAP_ARRAY_MESSAGE
     }
+
+    "empty color array exception" {
+        val system = ParticleSystem(mockParentView(), 100, arrayOf(mockk<Bitmap>()), 1000)
+        shouldThrowExactly<IllegalArgumentException> {
+            system.setColors()
+        } shouldHaveMessage EMPTY_COLOR_ARRAY_MESSAGE
+        shouldThrowExactly<IllegalArgumentException> {
+            ColorInitializer()
+        } shouldHaveMessage EMPTY_COLOR_ARRAY_MESSAGE
+    }
+
+    "trimmed pools are created again and released systems cannot start" {
+        val sprite: Bitmap = mockk(relaxed = true) {
+            every { byteCount } returns 4096
+        }
+        val system = ParticleSystem(mockParentView(), 10, arrayOf(sprite), 1000)
+
+        system.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) shouldBe 0L
+        system.startOffline(0, 0, 10, 0, 0)
+        system.activeParticles.size shouldBe 10
+        system.finishOffline()
+
+        system.release() shouldBe 4096L
+        shouldThrowExactly<IllegalStateException> {
+            system.startOffline(0, 0, 10, 0, 0)
+        }
+    }
+
+    "restarted systems reuse their particles" {
+        val system = ParticleSystem(mockParentView(), 10, arrayOf(mockk<Bitmap>(relaxed = true)), 1000)
+        system.startOffline(0, 0, 10, 0, 0)
+        val particles = system.activeParticles.toSet()
+        system.finishOffline()
+
+        system.startOffline(0, 0, 10, 0, 0)
+        system.activeParticles.toSet() shouldBe particles
+    }
+
+    "systems sharing a pool reuse its particles" {
+        val sprite: Bitmap = mockk(relaxed = true)
+        val pool = ParticlePool()
+
+        val first = ParticleSystem(mockParentView(), 10, arrayOf(sprite), 1000).setParticlePool(pool)
+        first.startOffline(0, 0, 10, 0, 0)
+        first.finishOffline()
+        pool.pooledCount shouldBe 10
+
+        val second = ParticleSystem(mockParentView(), 10, arrayOf(sprite), 1000).setParticlePool(pool)
+        second.startOffline(0, 0, 10, 0, 0)
+        pool.missCount shouldBe 10L
+        pool.hitCount shouldBe 10L
+        pool.pooledCount shouldBe 0
+    }
+
+    "late ticks are capped and catch up without a burst" {
+        var now = 1000L
+        // 0.1 px/ms to the right, so the center of a particle tells its age
+        val system = ParticleSystem(mockParentView(), 200, arrayOf(mockSprite(4, 4)), 1000)
+            .addInitializer(SpeedByComponentsInitializer(0.1f, 0.1f, 0f, 0f))
+            .setClock(object : ParticleClock {
+                override fun uptimeMillis() = now
+            })
+            .setMaxTickDelta(100)
+        // 100 particles per second, one every 10 ms
+        system.startOffline(0, 0, 0, 100, 10_000)
+
+        system.onTimerTick(false)
+        system.activeParticles.size shouldBe 0
+        now += 16
+        system.onTimerTick(false)
+        system.activeParticles.size shouldBe 2
+
+        // A 5 s stall only advances the time by 100 ms
+        now += 5000
+        system.onTimerTick(false)
+        val particles = system.activeParticles
+        particles.size shouldBe 12
+        // Each particle is emitted when it was due, 10 ms after the previous one
+        for (i in particles.indices) {
+            particles[i].centerX shouldBe (0.1f * (116 - 10 * i) plusOrMinus 1e-3f)
+        }
+        system.finishOffline()
+    }
 }) {
     companion object {
         const val EMPTY_BITMAP_ARRAY_MESSAGE = "Bitmap array can not be empty"
+        const val EMPTY_COLOR_ARRAY_MESSAGE = "Color array can not be empty"
     }
 }
@@ -0,0 +1,56 @@
+package androidx.particles
+
+import android.graphics.Bitmap
+import io.kotest.core.spec.style.StringSpec
+import io.mockk.every
+import io.mockk.mockk
+import kotlin.random.Random
+
+/**
+ * Measures the time to rasterize 2k translucent 32x32 particles with a
+ * [SoftwareParticleRenderer] into a full HD framebuffer.
+ */
+class SoftwareParticleRendererBenchmark : StringSpec({
+    "software rendering of 2k particles" {
+        val sprite: Bitmap = mockk {
+            every { width } returns SPRITE_SIZE
+            every { height } returns SPRITE_SIZE
+            every { config } returns Bitmap.Config.ARGB_8888
+            every { generationId } returns 0
+            every { getPixels(any(), any(), any(), any(), any(), any(), any()) } answers {
+                firstArg<IntArray>().fill(0x80FFFFFF.toInt())
+            }
+        }
+        val random = Random(0)
+        val particles = List(PARTICLE_COUNT) {
+            Particle(sprite).apply {
+                configure(Long.MAX_VALUE, random.nextFloat() * WIDTH, random.nextFloat() * HEIGHT)
+                mInitialRotation = random.nextFloat() * 360
+                activate(0, listOf())
+                update(0)
+            }
+        }
+        val renderer = SoftwareParticleRenderer(WIDTH, HEIGHT)
+        // Warm up the JIT before measuring
+        repeat(WARM_UP_FRAMES) {
+            renderer.clear()
+            renderer.rasterize(particles)
+        }
+        val start = System.nanoTime()
+        repeat(MEASURED_FRAMES) {
+            renderer.clear()
+            renderer.rasterize(particles)
+        }
+        val millisPerFrame = (System.nanoTime() - start) / MEASURED_FRAMES / 1e6
+        println("Software rendering: $millisPerFrame ms per frame")
+    }
+}) {
+    companion object {
+        const val PARTICLE_COUNT = 2_000
+        const val SPRITE_SIZE = 32
+        const val WARM_UP_FRAMES = 30
+        const val MEASURED_FRAMES = 60
+        const val WIDTH = 1080
+        const val HEIGHT = 1920
+    }
+}
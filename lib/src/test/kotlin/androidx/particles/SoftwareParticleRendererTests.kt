@@ -0,0 +1,71 @@
+package androidx.particles
+
+import android.graphics.Bitmap
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.every
+import io.mockk.mockk
+import java.nio.IntBuffer
+
+class SoftwareParticleRendererTests : StringSpec({
+    fun sprite(width: Int, height: Int, vararg pixels: Int): Bitmap = mockk {
+        every { getWidth() } returns width
+        every { getHeight() } returns height
+        every { config } returns Bitmap.Config.ARGB_8888
+        every { generationId } returns 0
+        every { getPixels(any(), any(), any(), any(), any(), any(), any()) } answers {
+            pixels.copyInto(firstArg<IntArray>())
+        }
+    }
+
+    fun particle(sprite: Bitmap, x: Float, y: Float, rotation: Float = 0f) = Particle(sprite).apply {
+        configure(1000, x, y)
+        mInitialRotation = rotation
+        activate(0, listOf())
+        update(0)
+    }
+
+    "rotated sprites match the golden image" {
+        val sprite = sprite(2, 2, RED, GREEN, BLUE, WHITE)
+        val framebuffer = IntArray(16)
+        val renderer = SoftwareParticleRenderer(IntBuffer.wrap(framebuffer), 4, 4)
+
+        renderer.rasterize(particle(sprite, 1f, 1f, 90f))
+
+        framebuffer.toList() shouldBe listOf(
+            BLUE, RED, 0, 0,
+            WHITE, GREEN, 0, 0,
+            0, 0, 0, 0,
+            0, 0, 0, 0
+        )
+    }
+
+    "translucent particles blend premultiplied" {
+        val sprite = sprite(1, 1, RED)
+        val framebuffer = IntArray(1)
+        val renderer = SoftwareParticleRenderer(IntBuffer.wrap(framebuffer), 1, 1)
+        val particle = particle(sprite, 0f, 0f).apply { mAlpha = 128 }
+
+        renderer.rasterize(particle)
+        framebuffer[0] shouldBe 0x80800000.toInt()
+        renderer.rasterize(particle)
+        framebuffer[0] shouldBe 0xC0C00000.toInt()
+    }
+
+    "sprites are clipped to the framebuffer" {
+        val sprite = sprite(4, 4, *IntArray(16) { WHITE })
+        val renderer = SoftwareParticleRenderer(8, 8)
+
+        renderer.rasterize(particle(sprite, -1f, 7f))
+
+        val buffer = renderer.buffer
+        (0 until 64).count { buffer.get(it) != 0 } shouldBe 3
+    }
+}) {
+    companion object {
+        const val RED = 0xFFFF0000.toInt()
+        const val GREEN = 0xFF00FF00.toInt()
+        const val BLUE = 0xFF0000FF.toInt()
+        const val WHITE = 0xFFFFFFFF.toInt()
+    }
+}
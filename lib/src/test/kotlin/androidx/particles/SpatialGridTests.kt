@@ -0,0 +1,34 @@
+package androidx.particles
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import kotlin.random.Random
+
+class SpatialGridTests : StringSpec({
+    "queries find the same particles as a brute force search" {
+        val random = Random(0)
+        val sprites = listOf(mockSprite(4, 4), mockSprite(30, 10))
+        val particles = List(500) {
+            Particle(sprites[it % 2]).apply {
+                configure(1000, random.nextFloat() * 400, random.nextFloat() * 300)
+            }
+        }
+        val grid = SpatialGrid()
+        grid.rebuild(particles, 20f)
+        val out = IntArray(particles.size)
+
+        repeat(100) {
+            val x = random.nextFloat() * 500 - 50
+            val y = random.nextFloat() * 400 - 50
+            val radius = random.nextFloat() * 60
+            val found = (0 until grid.query(x, y, radius, out)).map { grid.getParticle(out[it]) }.toSet()
+
+            val expected = particles.filter {
+                val dx = it.centerX - x
+                val dy = it.centerY - y
+                dx * dx + dy * dy <= radius * radius
+            }.toSet()
+            found shouldBe expected
+        }
+    }
+})
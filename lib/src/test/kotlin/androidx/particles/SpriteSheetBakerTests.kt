@@ -0,0 +1,59 @@
+package androidx.particles
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+
+class SpriteSheetBakerTests : StringSpec({
+    "identical frames are trimmed and stored once" {
+        val sprite = mockSprite(2, 2, RED, GREEN, BLUE, WHITE)
+        val system = ParticleSystem(mockParentView(), 1, arrayOf(sprite), 100)
+
+        // A particle standing still in the middle of a 16x16 frame, for 10 frames
+        val frames = SpriteSheetBaker(16, 16, 100).render(system, 1, 0, 0)
+
+        frames.mFrames.size shouldBe 10 * 6
+        for (i in 0 until 10) {
+            frames.mFrames.copyOfRange(i * 6, i * 6 + 6).toList() shouldBe listOf<Short>(0, 0, 2, 2, 7, 7)
+        }
+        frames.mSheetHeight shouldBe 2
+        val width = frames.mSheetWidth
+        listOf(frames.mSheet[0], frames.mSheet[1], frames.mSheet[width], frames.mSheet[width + 1]) shouldBe
+                listOf(RED, GREEN, BLUE, WHITE)
+        system.activeParticles.size shouldBe 0
+    }
+
+    "packed frames do not overlap and keep their pixels" {
+        val sizes = listOf(4 to 2, 2 to 3, 3 to 1, 1 to 1)
+        val frames = ShortArray(sizes.size * 6)
+        val pixels = Array(sizes.size) { i ->
+            val (width, height) = sizes[i]
+            frames[i * 6 + 2] = width.toShort()
+            frames[i * 6 + 3] = height.toShort()
+            IntArray(width * height) { (i + 1) shl 24 or it }
+        }
+
+        val packed = SpriteSheetBaker.pack(pixels, frames)
+
+        val covered = IntArray(packed.mSheetWidth * packed.mSheetHeight)
+        for (i in sizes.indices) {
+            val (width, height) = sizes[i]
+            val left = packed.mFrames[i * 6].toInt()
+            val top = packed.mFrames[i * 6 + 1].toInt()
+            for (y in 0 until height) {
+                for (x in 0 until width) {
+                    val index = (top + y) * packed.mSheetWidth + left + x
+                    covered[index]++
+                    packed.mSheet[index] shouldBe pixels[i][y * width + x]
+                }
+            }
+        }
+        covered.count { it > 1 } shouldBe 0
+    }
+}) {
+    companion object {
+        const val RED = 0xFFFF0000.toInt()
+        const val GREEN = 0xFF00FF00.toInt()
+        const val BLUE = 0xFF0000FF.toInt()
+        const val WHITE = 0xFFFFFFFF.toInt()
+    }
+}
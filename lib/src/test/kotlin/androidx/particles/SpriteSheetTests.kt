@@ -0,0 +1,38 @@
+package androidx.particles
+
+import android.graphics.Bitmap
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.mockk
+import java.nio.ByteBuffer
+
+class SpriteSheetTests : StringSpec({
+    val bitmap: Bitmap = mockk()
+    fun sheet() = SpriteSheet(bitmap, 64, 48, 33, shortArrayOf(
+        0, 0, 10, 12, 20, 18,
+        11, 0, 8, 8, 28, 20,
+        0, 0, 0, 0, 0, 0
+    ))
+
+    "encoding round trips" {
+        val bytes = sheet().toByteArray()
+        val parsed = SpriteSheet.parse(bitmap, ByteBuffer.wrap(bytes))
+
+        parsed.frameWidth shouldBe 64
+        parsed.frameHeight shouldBe 48
+        parsed.frameDuration shouldBe 33
+        parsed.frameCount shouldBe 3
+        parsed.toByteArray() shouldBe bytes
+    }
+
+    "truncated encodings are rejected" {
+        val bytes = sheet().toByteArray()
+        shouldThrow<IllegalArgumentException> {
+            SpriteSheet.parse(bitmap, ByteBuffer.wrap(bytes, 0, bytes.size - 3))
+        }
+        shouldThrow<IllegalArgumentException> {
+            SpriteSheet.parse(bitmap, ByteBuffer.wrap(bytes, 0, 6))
+        }
+    }
+})
@@ -0,0 +1,82 @@
+package androidx.particles.effects
+
+import android.graphics.Bitmap
+import androidx.particles.Particle
+import androidx.particles.ParticleSystem
+import androidx.particles.initializers.ParticleInitializer
+import androidx.particles.mockParentView
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.mockk
+import java.nio.ByteBuffer
+import java.util.Random
+
+class EffectDefinitionTests : StringSpec({
+    fun confetti() = EffectDefinition("confeti2", 80, 10000)
+        .setEmission(8, 0)
+        .setSpeedModuleAndAngleRange(0f, 0.1f, 180, 180)
+        .setRotationSpeedRange(144f, 144f)
+        .setColors(0xFFFF0000.toInt(), 0xFF00FF00.toInt())
+        .addScaleModifier(1f, 0.5f, 0, 1000, EffectDefinition.INTERPOLATOR_DECELERATE)
+        .setFadeOut(2000)
+
+    fun newSystem() = ParticleSystem(mockParentView(), 10, arrayOf(mockk<Bitmap>(relaxed = true)), 1000)
+
+    @Suppress("UNCHECKED_CAST")
+    fun initializers(system: ParticleSystem): List<ParticleInitializer> {
+        val field = ParticleSystem::class.java.getDeclaredField("mInitializers")
+        field.isAccessible = true
+        return field.get(system) as List<ParticleInitializer>
+    }
+
+    fun initialized(initializer: ParticleInitializer, seed: Long): Particle {
+        val particle = Particle(mockk(relaxed = true))
+        initializer.initParticle(particle, Random(seed))
+        return particle
+    }
+
+    "encoding round trips" {
+        val bytes = confetti().toByteArray()
+        val parsed = EffectDefinition.parse(ByteBuffer.wrap(bytes))
+
+        parsed.sprite shouldBe "confeti2"
+        parsed.maxParticles shouldBe 80
+        parsed.timeToLive shouldBe 10000L
+        parsed.toByteArray() shouldBe bytes
+    }
+
+    "truncated encodings are rejected" {
+        val bytes = confetti().toByteArray()
+        shouldThrow<IllegalArgumentException> {
+            EffectDefinition.parse(ByteBuffer.wrap(bytes, 0, bytes.size - 3))
+        }
+    }
+
+    "speeds and accelerations are converted like the particle system setters" {
+        val expected = newSystem()
+            .setSpeedModuleAndAngleRange(0.1f, 0.2f, 270, 90)
+            .setSpeedByComponentsRange(-0.1f, 0.1f, 0.05f, 0.3f)
+            .setAccelerationModuleAndAngleRange(0.0001f, 0.0002f, 45, 135)
+        val actual = newSystem()
+        EffectDefinition("sprite", 10, 1000)
+            .setSpeedModuleAndAngleRange(0.1f, 0.2f, 270, 90)
+            .setSpeedByComponentsRange(-0.1f, 0.1f, 0.05f, 0.3f)
+            .setAccelerationModuleAndAngleRange(0.0001f, 0.0002f, 45, 135)
+            .applyTo(actual)
+
+        val expectedInitializers = initializers(expected)
+        val actualInitializers = initializers(actual)
+        actualInitializers.size shouldBe 3
+        for (i in 0 until 3) {
+            for (seed in 0L until 20L) {
+                val e = initialized(expectedInitializers[i], seed)
+                val a = initialized(actualInitializers[i], seed)
+                a.mSpeedX shouldBe e.mSpeedX
+                a.mSpeedY shouldBe e.mSpeedY
+                a.mAccelerationX shouldBe e.mAccelerationX
+                a.mAccelerationY shouldBe e.mAccelerationY
+            }
+        }
+    }
+})
@@ -0,0 +1,69 @@
+package androidx.particles.initializers
+
+import androidx.particles.Particle
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.mockk.mockk
+import java.util.Random
+
+class BatchParticleInitializerTests : StringSpec({
+    fun particles() = Array(COUNT) { Particle(mockk()).apply { init() } }
+
+    fun state(p: Particle) = listOf(
+        p.mSpeedX, p.mSpeedY, p.mAccelerationX, p.mAccelerationY,
+        p.mInitialRotation, p.mRotationSpeed, p.mScale, p.mColor
+    )
+
+    "batches draw the same values as initializing each particle in turn" {
+        val initializers = listOf(
+            SpeedModuleAndRangeInitializer(0.1f, 0.3f, 30, 150),
+            SpeedModuleAndRangeInitializer(0.2f, 0.2f, 270, 270),
+            // Swapped and negative angles
+            SpeedModuleAndRangeInitializer(0.1f, 0.3f, 200, -45),
+            SpeedByComponentsInitializer(-0.1f, 0.1f, 0.05f, 0.2f),
+            AccelerationInitializer(0.0001f, 0.0003f, 45, 135),
+            AccelerationInitializer(0.0002f, 0.0002f, 90, 90),
+            RotationInitializer(0, 360),
+            RotationInitializer(45, 45),
+            RotationSpeedInitializer(-90f, 90f),
+            ScaleInitializer(0.5f, 2f),
+            ColorInitializer(0xFFFF0000.toInt(), 0xFF00FF00.toInt(), 0xFF0000FF.toInt())
+        )
+        for (initializer in initializers) {
+            val batch = particles()
+            val single = particles()
+            val batchRandom = Random(SEED)
+            val singleRandom = Random(SEED)
+
+            // From an offset, leaving the particles around untouched
+            initializer.initParticles(batch, 1, COUNT - 2, batchRandom)
+            for (i in 1 until COUNT - 1) {
+                initializer.initParticle(single[i], singleRandom)
+            }
+
+            batch.map(::state) shouldBe single.map(::state)
+            batchRandom.nextLong() shouldBe singleRandom.nextLong()
+        }
+    }
+
+    "adapted initializers initialize each particle in turn" {
+        val initializer = object : ParticleInitializer {
+            override fun initParticle(p: Particle, r: Random) {
+                p.mScale = r.nextFloat()
+            }
+        }
+        val batch = particles()
+        val single = particles()
+        val singleRandom = Random(SEED)
+
+        BatchInitializerAdapter.adapt(initializer).initParticles(batch, 0, COUNT, Random(SEED))
+        single.forEach { initializer.initParticle(it, singleRandom) }
+
+        batch.map(::state) shouldBe single.map(::state)
+    }
+}) {
+    companion object {
+        const val COUNT = 50
+        const val SEED = 42L
+    }
+}
@@ -0,0 +1,98 @@
+package androidx.particles.modifiers
+
+import android.view.animation.Interpolator
+import android.view.animation.LinearInterpolator
+import androidx.particles.Particle
+import androidx.particles.mockSprite
+import androidx.particles.useTimestep
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.mockk.every
+import io.mockk.mockkConstructor
+import io.mockk.unmockkConstructor
+
+class BatchParticleModifierTests : StringSpec({
+    // Before, during and after the modifiers
+    val ages = listOf(0L, 50L, 100L, 101L, 250L, 399L, 400L, 650L, 1000L)
+
+    fun particles(timestep: Int) = ages.mapIndexed { i, age ->
+        Particle(mockSprite(4, 4)).apply {
+            mSpeedX = 0.01f * i
+            mSpeedY = -0.02f * i
+            configure(10_000, 10f * i, 20f * i)
+            useTimestep(timestep)
+            activate(0, listOf())
+            update(age / 2)
+            update(age)
+        }
+    }
+
+    fun state(p: Particle) = listOf(p.mCurrentX, p.mCurrentY, p.mScale, p.mAlpha, p.velocityX, p.velocityY)
+
+    fun applyBatch(modifier: BatchParticleModifier, particles: List<Particle>) {
+        val batch = ParticleBatch()
+        particles.forEach { batch.add(it) }
+        modifier.applyBatch(batch)
+        batch.storeAll()
+    }
+
+    beforeTest {
+        // The interpolators of android.jar are stubs
+        mockkConstructor(LinearInterpolator::class)
+        every { anyConstructed<LinearInterpolator>().getInterpolation(any()) } answers { firstArg() }
+    }
+
+    afterTest {
+        unmockkConstructor(LinearInterpolator::class)
+    }
+
+    "batches are modified like each particle in turn" {
+        val easeIn = object : Interpolator {
+            override fun getInterpolation(input: Float) = input * input
+        }
+        val modifiers = listOf(
+            AlphaModifier(255, 0, 100, 400),
+            AlphaModifier(0, 200, 100, 400, easeIn),
+            ScaleModifier(0.5f, 2f, 100, 400),
+            ScaleModifier(2f, 0.5f, 100, 400, easeIn),
+            AccelerationModifier(0.0001f, 45f)
+        )
+        for (modifier in modifiers) {
+            val batch = particles(0)
+            val single = particles(0)
+
+            applyBatch(modifier, batch)
+            single.forEach { modifier.apply(it, it.age) }
+
+            batch.map(::state) shouldBe single.map(::state)
+        }
+    }
+
+    "adapted modifiers keep the velocity changes of the particles" {
+        val field = FlowField(0f, 0f, 100f, 100f, 2, 2)
+        field.fill(object : FlowField.Function {
+            override fun evaluate(x: Float, y: Float, out: FloatArray) {
+                out[0] = 0.001f
+                out[1] = -0.002f
+            }
+        })
+        val modifier = FlowFieldModifier(field, FlowFieldModifier.MODE_FORCE, 1f)
+        for (timestep in listOf(0, 16)) {
+            val batch = particles(timestep)
+            val single = particles(timestep)
+            val before = single.map(::state)
+
+            applyBatch(BatchModifierAdapter.adapt(modifier), batch)
+            single.forEach { modifier.apply(it, it.age) }
+
+            batch.map(::state) shouldBe single.map(::state)
+            batch.last().velocityX shouldNotBe before.last()[4]
+
+            // The new velocity carries on along the rest of the trajectory
+            batch.forEach { it.update(2000) }
+            single.forEach { it.update(2000) }
+            batch.map(::state) shouldBe single.map(::state)
+        }
+    }
+})
@@ -0,0 +1,54 @@
+package androidx.particles.modifiers
+
+import androidx.particles.Particle
+import androidx.particles.mockSprite
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.floats.plusOrMinus
+import io.kotest.matchers.shouldBe
+
+class FlowFieldTests : StringSpec({
+    "samples are interpolated bilinearly between nodes" {
+        val field = FlowField(0f, 0f, 100f, 100f, 2, 2)
+        field.set(0, 0, 0f, 0f)
+        field.set(1, 0, 1f, 0f)
+        field.set(0, 1, 0f, 1f)
+        field.set(1, 1, 1f, 1f)
+
+        field.sampleX(25f, 50f) shouldBe (0.25f plusOrMinus 1e-6f)
+        field.sampleY(25f, 50f) shouldBe (0.5f plusOrMinus 1e-6f)
+    }
+
+    "positions outside of the field are clamped to its edges" {
+        val field = FlowField(0f, 0f, 100f, 100f, 3, 3)
+        field.fill(object : FlowField.Function {
+            override fun evaluate(x: Float, y: Float, out: FloatArray) {
+                out[0] = x
+                out[1] = y
+            }
+        })
+
+        field.sampleX(-50f, 20f) shouldBe (0f plusOrMinus 1e-6f)
+        field.sampleX(150f, 20f) shouldBe (100f plusOrMinus 1e-6f)
+        field.sampleY(20f, 70f) shouldBe (70f plusOrMinus 1e-4f)
+    }
+
+    "particles are moved by the field at their center" {
+        val field = FlowField(0f, 0f, 100f, 100f, 3, 3)
+        field.fill(object : FlowField.Function {
+            override fun evaluate(x: Float, y: Float, out: FloatArray) {
+                out[0] = x
+                out[1] = y
+            }
+        })
+        val modifier = FlowFieldModifier(field, FlowFieldModifier.MODE_VELOCITY, 1f)
+        val particle = Particle(mockSprite(40, 20)).apply {
+            configure(1000, 50f, 60f)
+            activate(0, listOf(modifier))
+        }
+
+        particle.update(16)
+
+        particle.velocityX shouldBe (50f plusOrMinus 1e-4f)
+        particle.velocityY shouldBe (60f plusOrMinus 1e-4f)
+    }
+})